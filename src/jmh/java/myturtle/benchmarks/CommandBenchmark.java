@@ -0,0 +1,63 @@
+package myturtle.benchmarks;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.TimeUnit;
+import myturtle.commands.Command;
+import myturtle.programs.program_objects.LogoTurtle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures parsing a command line into a Command, and the cost of dispatching a command
+ * to a turtle. The reflective benchmark looks up and invokes the method the way commands
+ * used to be dispatched, as a baseline for the dispatch table.
+ *
+ * @author William Convertino
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CommandBenchmark {
+
+  private LogoTurtle turtle;
+  private Command turn;
+
+  @Setup
+  public void setup() {
+    turtle = new LogoTurtle();
+    turn = new Command("rt 90");
+  }
+
+  @Benchmark
+  public Command parseCommand() {
+    return new Command("fd 50");
+  }
+
+  @Benchmark
+  public Command parseQuotedCommand() {
+    return new Command("set F \"pd fd 10\"");
+  }
+
+  @Benchmark
+  public Object dispatchCommand() throws Exception {
+    return turtle.executeCommand(turn);
+  }
+
+  @Benchmark
+  public Object dispatchReflectively() throws Exception {
+    Method m = turtle.getClass().getMethod(turn.getCommand(), String.class);
+    return m.invoke(turtle, turn.getArgs().get(0));
+  }
+
+}
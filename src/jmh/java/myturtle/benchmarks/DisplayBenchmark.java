@@ -0,0 +1,83 @@
+package myturtle.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import myturtle.display.DisplayPackage;
+import myturtle.display.NodeRenderer;
+import myturtle.display.SegmentBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the per-frame cost of showing a display package that already holds a growing
+ * number of segments, when one more segment is drawn each frame, and the cost of showing
+ * a whole connected path (as most fractals are) at once. This is the work done by
+ * Display.loadDisplayPackage, which itself needs a JavaFX Stage and so can not be
+ * benchmarked without a screen.
+ *
+ * @author William Convertino
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DisplayBenchmark {
+
+  @Param({"1000", "10000", "100000"})
+  public int segments;
+
+  private DisplayPackage displayPackage;
+  private NodeRenderer renderer;
+  private SegmentBuffer path;
+
+  @Setup(Level.Trial)
+  public void fillPackage() {
+    SegmentBuffer buffer = new SegmentBuffer();
+    for (int i = 0; i < segments; i++) {
+      buffer.add(i, 0, i + 1, 1, SegmentBuffer.DEFAULT_STYLE);
+    }
+    displayPackage = new DisplayPackage();
+    displayPackage.setSegments(buffer);
+    renderer = new NodeRenderer();
+    loadDisplayPackage();
+    path = new SegmentBuffer();
+    for (int i = 0; i < segments; i++) {
+      path.add(i, i % 2, i + 1, (i + 1) % 2, SegmentBuffer.DEFAULT_STYLE);
+    }
+  }
+
+  @Benchmark
+  public void drawOneSegment() {
+    SegmentBuffer buffer = displayPackage.getSegments();
+    buffer.add(0, 0, 1, 1, SegmentBuffer.DEFAULT_STYLE);
+    loadDisplayPackage();
+  }
+
+  @Benchmark
+  public NodeRenderer drawConnectedPath() {
+    NodeRenderer pathRenderer = new NodeRenderer();
+    pathRenderer.syncSegments(path);
+    return pathRenderer;
+  }
+
+  //Applies the package's changes to the renderer, as the display does each frame.
+  private void loadDisplayPackage() {
+    displayPackage.getRemovedElements().forEach(renderer::remove);
+    displayPackage.getAddedElements().forEach(renderer::add);
+    renderer.syncSegments(displayPackage.getSegments());
+    displayPackage.clearChanges();
+    renderer.render();
+  }
+
+}
@@ -0,0 +1,63 @@
+package myturtle.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import myturtle.commands.Command;
+import myturtle.io.FileReader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures reading a large Logo script into a list of commands.
+ *
+ * @author William Convertino
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileReaderBenchmark {
+
+  @Param({"10000", "1000000"})
+  public int lines;
+
+  private Path script;
+
+  @Setup(Level.Trial)
+  public void writeScript() throws Exception {
+    script = Files.createTempFile("script", ".logo");
+    StringBuilder contents = new StringBuilder();
+    for (int i = 0; i < lines; i++) {
+      contents.append(i % 2 == 0 ? "fd 10\n" : "rt 91\n");
+    }
+    Files.writeString(script, contents);
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteScript() throws Exception {
+    Files.deleteIfExists(script);
+  }
+
+  @Benchmark
+  public List<Command> getCommandList() throws Exception {
+    try (FileReader reader = new FileReader(script.toString())) {
+      return reader.getCommandList();
+    }
+  }
+
+}
@@ -0,0 +1,84 @@
+package myturtle.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+import myturtle.programs.program_objects.DirectionTable;
+import myturtle.programs.program_objects.LSystemTurtle;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures moving a turtle along a fixed-angle path (a move and a 60 degree turn per step).
+ * The trigonometric benchmark recomputes the heading on every move, the way the turtle used
+ * to. The table benchmark looks headings up in a DirectionTable instead, and the last one
+ * moves a turtle (with its pen up) using its cached heading vector.
+ *
+ * @author William Convertino
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class HeadingBenchmark {
+
+  private static final int STEPS = 1024;
+  private static final int TURN = 60;
+
+  private LSystemTurtle turtle;
+  private DirectionTable directions;
+
+  @Setup
+  public void setup() {
+    turtle = new LSystemTurtle();
+    turtle.pu();
+    directions = DirectionTable.forStep(-90, TURN);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(STEPS)
+  public double moveWithTrigonometry() {
+    double x = 0;
+    double y = 0;
+    double angle = -90;
+    for (int i = 0; i < STEPS; i++) {
+      x += 10 * Math.cos(Math.toRadians(angle));
+      y += 10 * Math.sin(Math.toRadians(angle));
+      angle += TURN;
+    }
+    return x + y;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(STEPS)
+  public double moveWithDirectionTable() {
+    double x = 0;
+    double y = 0;
+    int heading = 0;
+    for (int i = 0; i < STEPS; i++) {
+      x += 10 * directions.getX(heading);
+      y += 10 * directions.getY(heading);
+      heading = directions.turn(heading, 1);
+    }
+    return x + y;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(STEPS)
+  public double forwardWithCachedHeading() {
+    for (int i = 0; i < STEPS; i++) {
+      turtle.forward(10);
+    }
+    return turtle.getX();
+  }
+
+}
@@ -0,0 +1,103 @@
+package myturtle.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import myturtle.commands.Command;
+import myturtle.programs.LSystemVisualizerProgram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures expanding an L-system pattern with updatePattern, and drawing the whole pattern
+ * through the program at increasing depths, both with a new program and again with a
+ * program whose cache already holds the pattern's expansions. Also measures changing the
+ * length of a drawn pattern's steps, as dragging the length slider does.
+ *
+ * @author William Convertino
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class LSystemBenchmark {
+
+  @Param({"2", "4", "6"})
+  public int depth;
+
+  private Path script;
+  private LSystemVisualizerProgram program;
+  private LSystemVisualizerProgram cachedProgram;
+  private Command[] setLengths;
+  private int nextLength;
+
+  @Setup(Level.Trial)
+  public void writeScript() throws Exception {
+    script = Files.createTempFile("koch", ".txt");
+    Files.writeString(script, "start F\nrule F F+F-F-F+F\nsetangle 90\nlevel " + depth + "\n");
+    cachedProgram = new LSystemVisualizerProgram(new ArrayList<>());
+    draw(cachedProgram);
+    setLengths = new Command[] {new Command("setlength 12"), new Command("setlength 40")};
+  }
+
+  @Setup(Level.Invocation)
+  public void createProgram() throws Exception {
+    program = new LSystemVisualizerProgram(new ArrayList<>());
+    program.executeCommand(new Command("start F"));
+    program.executeCommand(new Command("rule F F+F-F-F+F"));
+  }
+
+  @TearDown(Level.Trial)
+  public void deleteScript() throws Exception {
+    Files.deleteIfExists(script);
+  }
+
+  @Benchmark
+  public LSystemVisualizerProgram updatePattern() {
+    for (int i = 0; i < depth; i++) {
+      program.updatePattern();
+    }
+    return program;
+  }
+
+  @Benchmark
+  public int drawPattern() throws Exception {
+    return draw(program);
+  }
+
+  @Benchmark
+  public int redrawPattern() throws Exception {
+    cachedProgram.getTurtle().getSegments().clear();
+    return draw(cachedProgram);
+  }
+
+  @Benchmark
+  public double setLength() throws Exception {
+    nextLength ^= 1;
+    cachedProgram.executeCommand(setLengths[nextLength]);
+    return cachedProgram.getDrawingScale();
+  }
+
+  private int draw(LSystemVisualizerProgram target) throws Exception {
+    target.loadFileAsInstructions(script.toString());
+    while (!target.isFinished()) {
+      target.update();
+    }
+    return target.getTurtle().getSegments().size();
+  }
+
+}
@@ -0,0 +1,95 @@
+package myturtle.benchmarks;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import myturtle.programs.LSystemVisualizerProgram;
+import myturtle.programs.program_objects.Deadline;
+import myturtle.programs.program_objects.LSystemTurtle;
+import myturtle.programs.program_objects.ParallelLSystemRenderer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures rendering a deep L-system pattern in parallel on pools of increasing size. The
+ * dragon curve only turns by quarter turns, so its chunks start from states worked out from
+ * the summaries; the Levy C curve turns by 45 degrees, so its chunks start from states
+ * traced on the calling thread. Comparing the two shows how much of the rendering that
+ * tracing keeps on one thread.
+ *
+ * @author William Convertino
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class RenderBenchmark {
+
+  @Param({"dragon", "levy"})
+  public String curve;
+
+  @Param({"14", "18"})
+  public int depth;
+
+  @Param({"1", "2", "4", "8"})
+  public int parallelism;
+
+  private ForkJoinPool pool;
+  private Map<String, String> rules;
+  private String angle;
+  private String start;
+  private LSystemTurtle turtle;
+  private ParallelLSystemRenderer renderer;
+
+  @Setup(Level.Trial)
+  public void createPool() {
+    pool = new ForkJoinPool(parallelism);
+    rules = new HashMap<>();
+    if (curve.equals("dragon")) {
+      start = "FX";
+      rules.put("X", "X+YF+");
+      rules.put("Y", "-FX-Y");
+      angle = "90";
+    } else {
+      start = "F";
+      rules.put("F", "+F--F+");
+      angle = "45";
+    }
+  }
+
+  @Setup(Level.Invocation)
+  public void createRenderer() {
+    turtle = new LSystemTurtle();
+    turtle.setangle(angle);
+    renderer = new ParallelLSystemRenderer(LSystemVisualizerProgram.BUIT_IN_LIBRARY, rules,
+        turtle);
+  }
+
+  @TearDown(Level.Trial)
+  public void shutDownPool() {
+    pool.shutdown();
+  }
+
+  @Benchmark
+  public int render() throws Exception {
+    return pool.submit(() -> {
+      renderer.render(start, depth, Deadline.NONE);
+      return turtle.getSegments().size();
+    }).get();
+  }
+
+}
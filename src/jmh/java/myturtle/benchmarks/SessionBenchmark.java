@@ -0,0 +1,88 @@
+package myturtle.benchmarks;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import myturtle.MyTurtleEngine;
+import myturtle.SessionEngine;
+import myturtle.display.SegmentBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how many scripts per second the session engine renders with a given number of
+ * sessions running at once. Each operation is one script, alternating between a Logo
+ * script and an L-system.
+ *
+ * @author William Convertino
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SessionBenchmark {
+
+  //The number of scripts rendered by each invocation.
+  private static final int SCRIPTS = 128;
+
+  @Param({"1", "8", "64"})
+  public int sessions;
+
+  private Path logoScript;
+  private Path lsystemScript;
+  private SessionEngine engine;
+
+  @Setup(Level.Trial)
+  public void startEngine() throws Exception {
+    logoScript = Files.createTempFile("script", ".logo");
+    StringBuilder contents = new StringBuilder();
+    for (int i = 0; i < 10000; i++) {
+      contents.append(i % 2 == 0 ? "fd 10\n" : "rt 91\n");
+    }
+    Files.writeString(logoScript, contents);
+    lsystemScript = Files.createTempFile("koch", ".txt");
+    Files.writeString(lsystemScript, "start F\nrule F F+F-F-F+F\nsetangle 90\nlevel 5\n");
+    engine = new SessionEngine(sessions);
+  }
+
+  @TearDown(Level.Trial)
+  public void stopEngine() throws Exception {
+    engine.close();
+    Files.deleteIfExists(logoScript);
+    Files.deleteIfExists(lsystemScript);
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(SCRIPTS)
+  public int renderScripts() throws Exception {
+    List<Future<SegmentBuffer>> results = new ArrayList<>();
+    for (int i = 0; i < SCRIPTS; i++) {
+      results.add(i % 2 == 0
+          ? engine.submit(MyTurtleEngine.LOGO, logoScript.toString())
+          : engine.submit(MyTurtleEngine.VISUALIZER, lsystemScript.toString()));
+    }
+    int segments = 0;
+    for (Future<SegmentBuffer> result : results) {
+      segments += result.get().size();
+    }
+    return segments;
+  }
+
+}
@@ -0,0 +1,65 @@
+package myturtle.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+import myturtle.commands.Command;
+import myturtle.display.SegmentBuffer;
+import myturtle.programs.LogoVisualizerProgram;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures sending a command that moves and draws to every turtle of a program with many
+ * turtles, as each frame of a simulation does.
+ *
+ * @author William Convertino
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class TurtleBenchmark {
+
+  //The most segments kept before the drawing is cleared, so it does not grow without bound.
+  private static final int MAX_SEGMENTS = 1 << 20;
+
+  @Param({"1", "1000", "10000"})
+  public int turtles;
+
+  private LogoVisualizerProgram program;
+  private Command forward;
+  private Command turn;
+
+  @Setup(Level.Iteration)
+  public void createTurtles() throws Exception {
+    program = new LogoVisualizerProgram(new ArrayList<>());
+    program.executeCommand(new Command("turtles " + turtles));
+    program.executeCommand(new Command("tell all"));
+    forward = new Command("fd 3");
+    turn = new Command("rt 5");
+  }
+
+  @Benchmark
+  public int step() throws Exception {
+    program.executeCommand(forward);
+    program.executeCommand(turn);
+    SegmentBuffer segments = program.getTurtle().getSegments();
+    if (segments.size() > MAX_SEGMENTS) {
+      segments.clear();
+    }
+    return segments.size();
+  }
+
+}
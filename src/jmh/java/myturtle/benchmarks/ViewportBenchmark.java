@@ -0,0 +1,86 @@
+package myturtle.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import myturtle.display.SegmentBuffer;
+import myturtle.display.SegmentIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures finding the segments in view of a canvas-sized viewport, as the canvas renderer
+ * does whenever the drawing is zoomed or panned, in a drawing made of a long random walk.
+ * The scan benchmark checks every segment instead, which is what drawing without an index
+ * costs before a single segment is stroked.
+ *
+ * @author William Convertino
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@State(Scope.Thread)
+public class ViewportBenchmark {
+
+  private static final int VIEW_WIDTH = 640;
+  private static final int VIEW_HEIGHT = 480;
+
+  @Param({"1000000", "10000000"})
+  public int segments;
+
+  private SegmentBuffer buffer;
+  private SegmentIndex index;
+  private Random random;
+
+  @Setup(Level.Trial)
+  public void drawWalk() {
+    random = new Random(0);
+    buffer = new SegmentBuffer();
+    double x = 0;
+    double y = 0;
+    for (int i = 0; i < segments; i++) {
+      double nextX = x + random.nextGaussian() * 10;
+      double nextY = y + random.nextGaussian() * 10;
+      buffer.add(x, y, nextX, nextY, SegmentBuffer.DEFAULT_STYLE);
+      x = nextX;
+      y = nextY;
+    }
+    index = new SegmentIndex();
+    index.query(buffer, 0, 0, 0, 0);
+  }
+
+  @Benchmark
+  public int[] queryViewport() {
+    double x = random.nextGaussian() * 2000;
+    double y = random.nextGaussian() * 2000;
+    return index.query(buffer, x, y, x + VIEW_WIDTH, y + VIEW_HEIGHT);
+  }
+
+  @Benchmark
+  public int scanViewport() {
+    double x = random.nextGaussian() * 2000;
+    double y = random.nextGaussian() * 2000;
+    int found = 0;
+    for (int i = 0; i < buffer.size(); i++) {
+      if (Math.max(buffer.getX1(i), buffer.getX2(i)) >= x
+          && Math.min(buffer.getX1(i), buffer.getX2(i)) <= x + VIEW_WIDTH
+          && Math.max(buffer.getY1(i), buffer.getY2(i)) >= y
+          && Math.min(buffer.getY1(i), buffer.getY2(i)) <= y + VIEW_HEIGHT) {
+        found++;
+      }
+    }
+    return found;
+  }
+
+}
@@ -0,0 +1,58 @@
+package myturtle;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import myturtle.display.SegmentBuffer;
+import myturtle.io.DrawingWriter;
+import myturtle.programs.Program;
+
+/**
+ * Runs a program on a script file without starting JavaFX, as fast as possible, and saves
+ * the resulting drawing as a PNG or SVG image. Useful for rendering scripts in bulk or on
+ * machines without a display. To render many scripts at once, see SessionEngine.
+ *
+ * Usage: HeadlessRenderer (logo|visualizer|lsv) script output.(png|svg)
+ *
+ * @author William Convertino
+ */
+public class HeadlessRenderer {
+
+  public static final String USAGE = "Usage: HeadlessRenderer (logo|visualizer|lsv) script output.(png|svg)";
+
+  /**
+   * Runs every instruction of the program's script, with no frame pacing.
+   *
+   * @param program the program to run.
+   * @param script the name of the script file to run.
+   * @return the segments drawn by the program's turtle, at the program's drawing scale.
+   * @throws Exception if the script could not be read or contains an invalid command.
+   */
+  public static SegmentBuffer render(Program program, String script) throws Exception {
+    return new RenderSession(program, script, Integer.MAX_VALUE, 0).call();
+  }
+
+  /**
+   * Renders the script given on the command line.
+   *
+   * @param args the program to run, the script file, and the image file to write.
+   */
+  public static void main(String[] args) {
+    System.setProperty("java.awt.headless", "true");
+    if (args.length != 3) {
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+    Program program = MyTurtleEngine.createProgram(args[0], new ArrayList<>());
+    if (program == null) {
+      System.err.println(USAGE);
+      System.exit(2);
+    }
+    try {
+      new DrawingWriter(render(program, args[1])).write(Path.of(args[2]));
+    } catch (Exception e) {
+      System.err.println("Could not render " + args[1] + ": " + e);
+      System.exit(1);
+    }
+  }
+
+}
@@ -1,21 +1,23 @@
 package myturtle;
 
 import java.awt.Dimension;
-import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.stage.Stage;
 import javafx.util.Duration;
 import myturtle.commands.Command;
 import myturtle.display.Display;
+import myturtle.display.DisplayUpdate;
 import myturtle.error_handling.InvalidArgumentException;
 import myturtle.error_handling.InvalidCommandException;
 import myturtle.io.IOHandler;
 import myturtle.programs.LSystemVisualizerProgram;
 import myturtle.programs.LogoVisualizerProgram;
 import myturtle.programs.Program;
+import myturtle.programs.program_objects.Turtle;
 
 /**
  * A class to bring together the display and logic of the application,
@@ -26,6 +28,11 @@ import myturtle.programs.Program;
 public class MyTurtleEngine {
 
   public static final String EXIT = "exit";
+  public static final String RENDER = "render";
+  public static final String SPEED = "speed";
+  public static final String DETAIL = "detail";
+  public static final String HISTORY = "history";
+  public static final String RUN = "run";
   public static final String LOGO = "logo";
   public static final String VISUALIZER = "visualizer";
   public static final String VISUALIZER_ALTERNATE = "lsv";
@@ -43,9 +50,11 @@ public class MyTurtleEngine {
 
   private static final double FRAME_DURATION = 1/60.0;
 
-  //Programs
+  //Programs, and the runner running the active one on its own thread.
   private Program activeProgram;
+  private ProgramRunner myRunner;
   private HashSet initCommands;
+  private PlaybackSpeed mySpeed = PlaybackSpeed.DEFAULT;
 
   /**
    * Constructs a new MyTurtle engine.
@@ -90,19 +99,12 @@ public class MyTurtleEngine {
     if (myCommand.getCommand() == null) {
       return;
     }
-    if (activeProgram == null || myCommand.getCommand().equals(EXIT)) {
+    if (activeProgram == null || myCommand.getCommand().equals(EXIT)
+        || myCommand.getCommand().equals(RENDER) || myCommand.getCommand().equals(SPEED)
+        || myCommand.getCommand().equals(DETAIL) || myCommand.getCommand().equals(HISTORY)) {
       callCommand(myCommand);
     } else {
-      try {
-        activeProgram.executeCommand(myCommand);
-      } catch (InvalidCommandException e) {
-        myDisplay.showError(e);
-      } catch (InvalidArgumentException e) {
-        myDisplay.showError(e);
-      } catch (Exception e) {
-        myDisplay.showError(e);
-      }
-
+      activeProgram.queueCommand(myCommand);
     }
   }
 
@@ -118,20 +120,85 @@ public class MyTurtleEngine {
         System.out.println("\nExiting "+activeProgram.getName() );
       }
       reset();
+    } else if (command.getCommand().equals(RENDER) && command.getArgs().size() == 1) {
+      setRenderMode(command);
+    } else if (command.getCommand().equals(SPEED) && command.getArgs().size() == 1) {
+      setSpeed(command);
+    } else if (command.getCommand().equals(DETAIL) && command.getArgs().size() == 1) {
+      setDetail(command);
+    } else if (command.getCommand().equals(HISTORY) && command.getArgs().size() == 1) {
+      setHistoryLimit(command);
     } else {
       myDisplay.showError(new InvalidCommandException(command));
     }
 
   }
 
+  //Switches the display between rendering each line as a node and drawing onto a canvas.
+  private void setRenderMode(Command command) {
+    try {
+      myDisplay.setRenderMode(command.getArgs().get(0));
+    } catch (IllegalArgumentException e) {
+      myDisplay.showError(new InvalidArgumentException(command));
+    }
+  }
+
+  //Sets the smallest size, in pixels, that a segment is drawn at.
+  private void setDetail(Command command) {
+    try {
+      myDisplay.setDetail(command.getNumber(0));
+    } catch (IllegalArgumentException e) {
+      myDisplay.showError(new InvalidArgumentException(command));
+    }
+  }
+
+  //Sets the most segments kept as vectors before older ones are flattened into a bitmap.
+  private void setHistoryLimit(Command command) {
+    double limit = command.getNumber(0);
+    if (limit != (int) limit) {
+      myDisplay.showError(new InvalidArgumentException(command));
+      return;
+    }
+    try {
+      myDisplay.setHistoryLimit((int) limit);
+    } catch (IllegalArgumentException e) {
+      myDisplay.showError(new InvalidArgumentException(command));
+    }
+  }
+
+  /**
+   * Creates the program associated with the given initialization command.
+   *
+   * @param name the name of the program (one of AVAILABLE_PROGRAMS).
+   * @param args the arguments of the program.
+   * @return the new program, or null if no program has that name.
+   */
+  public static Program createProgram(String name, List<String> args) {
+    if (name.equals(LOGO)) {
+      return new LogoVisualizerProgram(args);
+    } else if (name.equals(VISUALIZER) || name.equals(VISUALIZER_ALTERNATE)) {
+      return new LSystemVisualizerProgram(args);
+    }
+    return null;
+  }
+
+  //Sets how much of the active program runs each frame (step, max, a number of
+  //instructions, or a time budget such as 8ms).
+  private void setSpeed(Command command) {
+    try {
+      mySpeed = PlaybackSpeed.parse(command.getArgs().get(0));
+      if (myRunner != null) {
+        myRunner.setSpeed(mySpeed);
+      }
+    } catch (IllegalArgumentException e) {
+      myDisplay.showError(new InvalidArgumentException(command));
+    }
+  }
+
   //Initializes a new program based on the initialization command.
   private void startNewProgram(Command c) {
     reset();
-    if (c.getCommand().equals(LOGO)) {
-      activeProgram = new LogoVisualizerProgram(c.getArgs());
-    } else if (c.getCommand().equals(VISUALIZER) || c.getCommand().equals(VISUALIZER_ALTERNATE)) {
-      activeProgram = new LSystemVisualizerProgram((c.getArgs()));
-    }
+    activeProgram = createProgram(c.getCommand(), c.getArgs());
 
     myIOHandler.loadIOPackage(activeProgram.generateIOPackage());
 
@@ -139,36 +206,48 @@ public class MyTurtleEngine {
     System.out.println("\nStarting " + activeProgram.getName());
 
     if (c.getArgs().size() == 1) {
-      try {
-        activeProgram.loadFileAsInstructions(c.getArgs().get(0));
-      } catch (IOException e) {
-        myDisplay.showError(e);
-      }
+      activeProgram.queueCommand(new Command(RUN, c.getArgs().get(0)));
     }
+    myRunner = new ProgramRunner(activeProgram, mySpeed);
   }
 
   //Resets the display and IO and removes the current program.
   private void reset() {
+    if (myRunner != null) {
+      myRunner.close();
+      myRunner = null;
+    }
+    myDisplay.showLoadProgress(1);
     myIOHandler.removeCurrentIOPackage();
     myDisplay.unloadDisplayPackage();
     this.activeProgram = null;
   }
 
-  //Updates the active program if one is loaded.
+  //Shows what the active program has drawn since the last frame, if anything, and asks
+  //its runner for the next frame. The program itself runs on the runner's thread.
   private void updateProgram() {
-    if (activeProgram == null) {
+    if (myRunner == null) {
       return;
     }
-
-    try {
-      activeProgram.update();
-
-    } catch (InvalidArgumentException e) {
-      myDisplay.showError(e);
-    } catch (Exception e) {
-      myDisplay.showError(e);
+    DisplayUpdate last = null;
+    DisplayUpdate update;
+    while ((update = myRunner.nextUpdate()) != null) {
+      if (update.getError() != null) {
+        myDisplay.showError(update.getError());
+      }
+      last = update;
+    }
+    if (last != null) {
+      myDisplay.setDrawingScale(last.getDrawingScale(), Turtle.HOME_X, Turtle.HOME_Y);
+      Turtle[] turtles = activeProgram.getTurtles();
+      for (int i = 0; i < Math.min(turtles.length, last.getTurtleCount()); i++) {
+        turtles[i].syncDisplayShape(last.getTurtleX(i), last.getTurtleY(i),
+            last.getTurtleAngle(i), last.isTurtleVisible(i));
+      }
+      myDisplay.loadDisplayPackage(myRunner.getDisplayPackage());
+      myDisplay.showLoadProgress(last.getLoadProgress());
     }
-    myDisplay.loadDisplayPackage(activeProgram.getDisplayPackage());
+    myRunner.requestFrame();
   }
 
   //Executes the application's logic once per game loop.
@@ -0,0 +1,105 @@
+package myturtle;
+
+import myturtle.programs.Program;
+
+/**
+ * Decides how much of a program runs in each frame. A program can be stepped once per
+ * frame (the default, which animates the drawing), a fixed number of times per frame, for
+ * as many steps as fit in a time budget each frame, or run to completion in a single frame.
+ *
+ * @author William Convertino
+ */
+public class PlaybackSpeed {
+
+  /**Runs one step of the program per frame.**/
+  public static final String STEP = "step";
+
+  /**Runs the whole program in one frame.**/
+  public static final String MAX = "max";
+
+  /**The suffix of a per-frame time budget, such as "8ms".**/
+  public static final String MILLISECONDS = "ms";
+
+  /**The default speed, which runs one step per frame.**/
+  public static final PlaybackSpeed DEFAULT = new PlaybackSpeed(1, 0);
+
+  //The most steps to run per frame (0 if unlimited).
+  private final int stepsPerFrame;
+
+  //The most time to spend per frame, in nanoseconds (0 if unlimited).
+  private final long frameBudget;
+
+  //Constructs a speed with the given limits on each frame.
+  private PlaybackSpeed(int stepsPerFrame, long frameBudget) {
+    this.stepsPerFrame = stepsPerFrame;
+    this.frameBudget = frameBudget;
+  }
+
+  /**
+   * Creates a speed from its description: "step", "max", a number of steps per frame
+   * (such as "100"), or a time budget per frame (such as "8ms").
+   *
+   * @param speed the description of the speed.
+   * @return the described speed.
+   * @throws IllegalArgumentException if the description is not valid.
+   */
+  public static PlaybackSpeed parse(String speed) {
+    if (speed.equals(STEP)) {
+      return DEFAULT;
+    } else if (speed.equals(MAX)) {
+      return new PlaybackSpeed(0, 0);
+    } else if (speed.endsWith(MILLISECONDS)) {
+      double millis = Double.parseDouble(speed.substring(0, speed.length() - MILLISECONDS.length()));
+      if (!(millis > 0)) {
+        throw new IllegalArgumentException(speed);
+      }
+      return new PlaybackSpeed(0, (long) (millis * 1_000_000));
+    }
+    int steps = Integer.parseInt(speed);
+    if (steps <= 0) {
+      throw new IllegalArgumentException(speed);
+    }
+    return new PlaybackSpeed(steps, 0);
+  }
+
+  /**
+   * Runs one frame's worth of the given program. The program is always updated at least
+   * once, and then again until it finishes or this frame's limit is reached.
+   *
+   * @param program the program to run.
+   * @throws Exception if the program throws an exception while updating.
+   */
+  public void runFrame(Program program) throws Exception {
+    runFrame(program, 0);
+  }
+
+  /**
+   * Runs one frame's worth of the given program, stopping early once the given time has
+   * passed, even if this speed has no limit of its own.
+   *
+   * @param program the program to run.
+   * @param maxNanos the most time to spend, in nanoseconds (0 if unlimited).
+   * @throws Exception if the program throws an exception while updating.
+   */
+  public void runFrame(Program program, long maxNanos) throws Exception {
+    long budget = frameBudget == 0 || (maxNanos > 0 && maxNanos < frameBudget) ? maxNanos : frameBudget;
+    long deadline = System.nanoTime() + budget;
+    int steps = 0;
+    do {
+      program.update();
+      steps++;
+    } while (!program.isFinished()
+        && (stepsPerFrame == 0 || steps < stepsPerFrame)
+        && (budget == 0 || System.nanoTime() < deadline));
+  }
+
+  /**
+   * Returns whether this speed runs the program without any limit per frame.
+   *
+   * @return true if the whole program runs in one frame.
+   */
+  public boolean isUnlimited() {
+    return stepsPerFrame == 0 && frameBudget == 0;
+  }
+
+}
@@ -0,0 +1,172 @@
+package myturtle;
+
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.LockSupport;
+import myturtle.display.DisplayMirror;
+import myturtle.display.DisplayPackage;
+import myturtle.display.DisplayUpdate;
+import myturtle.programs.Program;
+import myturtle.programs.program_objects.Turtle;
+
+/**
+ * Runs a program on its own thread, so that a long drawing never holds up the JavaFX
+ * thread. Each frame, the JavaFX thread asks the runner for a frame, and the runner runs
+ * the commands queued for the program and a frame's worth of its script. It then captures
+ * what changed on the program's display into a DisplayUpdate, which is handed back through
+ * a lock-free single-producer, single-consumer queue that the JavaFX thread drains each
+ * frame. While the program is busy, the JavaFX thread simply finds no new updates.
+ *
+ * A program running at full speed does not wait for frames, and instead hands over an
+ * update every FRAME_NANOS, so the drawing appears as it is made.
+ *
+ * @author William Convertino
+ */
+public class ProgramRunner {
+
+  /**The most updates waiting to be shown before the runner stops handing them over.**/
+  public static final int QUEUE_CAPACITY = 64;
+
+  /**How long a program running at full speed runs between updates.**/
+  public static final long FRAME_NANOS = 16_000_000;
+
+  private Program myProgram;
+  private Thread myThread;
+
+  //The updates captured by the runner, and the copy of the display they are applied to.
+  private SpscQueue<DisplayUpdate> myUpdates;
+  private DisplayMirror myMirror;
+
+  private volatile PlaybackSpeed mySpeed;
+  private volatile boolean running;
+  private AtomicBoolean frameRequested;
+
+  //An error thrown by the program that has not been handed over yet.
+  private Exception pendingError;
+
+  /**
+   * Starts running a program on a new thread.
+   *
+   * @param program the program to run.
+   * @param speed how much of the program to run each frame.
+   */
+  public ProgramRunner(Program program, PlaybackSpeed speed) {
+    this.myProgram = program;
+    this.mySpeed = speed;
+    this.myUpdates = new SpscQueue<>(QUEUE_CAPACITY);
+    this.myMirror = new DisplayMirror();
+    this.frameRequested = new AtomicBoolean();
+    this.running = true;
+    this.myThread = new Thread(this::run, "program-runner");
+    myThread.setDaemon(true);
+    myThread.start();
+  }
+
+  /**
+   * Sets how much of the program runs each frame.
+   *
+   * @param speed the new speed.
+   */
+  public void setSpeed(PlaybackSpeed speed) {
+    mySpeed = speed;
+    LockSupport.unpark(myThread);
+  }
+
+  /**
+   * Asks the runner to run the next frame of the program. Called by the JavaFX thread once
+   * per frame; frames asked for while the program is still busy are merged into one.
+   */
+  public void requestFrame() {
+    frameRequested.set(true);
+    LockSupport.unpark(myThread);
+  }
+
+  /**
+   * Takes the next update handed over by the runner, applying it to the copy of the
+   * program's display. Called by the JavaFX thread.
+   *
+   * @return the update, or null if there are no new updates.
+   */
+  public DisplayUpdate nextUpdate() {
+    DisplayUpdate next = myUpdates.poll();
+    if (next != null) {
+      myMirror.apply(next);
+    }
+    return next;
+  }
+
+  /**
+   * Returns the copy of the program's display package, which is kept up to date by
+   * nextUpdate and can be shown by the display.
+   *
+   * @return the copy of the program's package.
+   */
+  public DisplayPackage getDisplayPackage() {
+    return myMirror.getPackage();
+  }
+
+  /**
+   * Stops running the program without waiting for it. The runner's thread is interrupted,
+   * which stops a drawing in progress at its next deadline check, and then clears the
+   * program's instructions.
+   */
+  public void close() {
+    running = false;
+    myThread.interrupt();
+  }
+
+  //Runs frames of the program until the runner is closed.
+  private void run() {
+    while (waitForFrame()) {
+      try {
+        myProgram.runQueuedCommands();
+        mySpeed.runFrame(myProgram, FRAME_NANOS);
+      } catch (Exception e) {
+        pendingError = e;
+      }
+      publish();
+    }
+    try {
+      myProgram.clearInstructions();
+    } catch (IOException e) {
+      //The program is no longer shown, so there is no one to tell.
+    }
+  }
+
+  //Waits until a frame is asked for, or returns at once if the program runs at full speed
+  //and has work left. Returns false once the runner is closed.
+  private boolean waitForFrame() {
+    while (running) {
+      if (frameRequested.getAndSet(false)
+          || (mySpeed.isUnlimited() && !myProgram.isFinished() && !myUpdates.isFull())) {
+        return true;
+      }
+      LockSupport.park(this);
+    }
+    return false;
+  }
+
+  //Hands over everything that changed in the frame, unless the JavaFX thread is too far
+  //behind, in which case the changes are handed over with the next frame instead. The
+  //turtles are placed where they are shown, which the drawing scale moves them away from.
+  private void publish() {
+    if (myUpdates.isFull()) {
+      return;
+    }
+    DisplayUpdate update = myMirror.capture(myProgram.getDisplayPackage());
+    double scale = myProgram.getDrawingScale();
+    update.setDrawingScale(scale);
+    Turtle[] turtles = myProgram.getTurtles();
+    update.setTurtleCount(turtles.length);
+    for (int i = 0; i < turtles.length; i++) {
+      update.setTurtle(i, Turtle.HOME_X + (turtles[i].getX() - Turtle.HOME_X) * scale,
+          Turtle.HOME_Y + (turtles[i].getY() - Turtle.HOME_Y) * scale, turtles[i].getAngle(),
+          turtles[i].isVisible());
+    }
+    update.setLoadProgress(myProgram.getLoadProgress());
+    update.setError(pendingError);
+    pendingError = null;
+    myUpdates.offer(update);
+  }
+
+}
@@ -0,0 +1,95 @@
+package myturtle;
+
+import java.util.concurrent.Callable;
+import myturtle.display.SegmentBuffer;
+import myturtle.programs.Program;
+import myturtle.programs.program_objects.Deadline;
+import myturtle.programs.program_objects.Turtle;
+
+/**
+ * One script rendered without a display by its own program and turtle, so that it shares
+ * nothing with any other session. A session is limited in how long it may run, in how
+ * many segments it may draw, and in how much its program may cache, which bounds the time
+ * and memory a single script can take.
+ *
+ * The time limit is checked between steps of the program and as a step draws, while the
+ * segment limit is checked as each segment is drawn, so both also bound a single step that
+ * draws a whole L-system pattern.
+ *
+ * With no display to scale the drawing, a program's drawing scale is applied to the
+ * segments themselves once the script is done.
+ *
+ * @author William Convertino
+ */
+public class RenderSession implements Callable<SegmentBuffer> {
+
+  /**
+   * The most memory a session's program may keep between drawings, in bytes. It is much
+   * less than a program shown to the user may keep, since many sessions run at once.
+   **/
+  public static final long CACHE_LIMIT = 8L << 20;
+
+  private Program myProgram;
+  private String myScript;
+
+  //The most segments the session may draw, and the most time it may run for.
+  private int maxSegments;
+  private long maxNanos;
+
+  /**
+   * Constructs a session that runs a script on the given program.
+   *
+   * @param program the program to run the script, which no other session may use.
+   * @param script the name of the script file to run.
+   * @param maxSegments the most segments the script may draw.
+   * @param maxNanos the most time the script may run for, in nanoseconds (0 if unlimited).
+   */
+  public RenderSession(Program program, String script, int maxSegments, long maxNanos) {
+    this.myProgram = program;
+    this.myScript = script;
+    this.maxSegments = maxSegments;
+    this.maxNanos = maxNanos;
+  }
+
+  /**
+   * Runs every instruction of the script, with no frame pacing.
+   *
+   * @return the segments drawn by the program's turtle, at the program's drawing scale.
+   * @throws IllegalStateException if the script runs past either of the session's limits.
+   * @throws Exception if the script could not be read or contains an invalid command.
+   */
+  @Override
+  public SegmentBuffer call() throws Exception {
+    SegmentBuffer segments = myProgram.getTurtle().getSegments();
+    segments.setLimit(maxSegments);
+    Deadline deadline =
+        new Deadline(Thread.currentThread(), System.nanoTime() + maxNanos, maxNanos);
+    myProgram.setTimeLimit(deadline);
+    myProgram.setCacheLimit(CACHE_LIMIT);
+    try {
+      myProgram.loadFileAsInstructions(myScript);
+      while (!myProgram.isFinished()) {
+        deadline.check();
+        myProgram.update();
+      }
+    } finally {
+      myProgram.setTimeLimit(null);
+      myProgram.clearInstructions();
+    }
+    return applyDrawingScale(segments);
+  }
+
+  //Returns the segments scaled by the program's drawing scale about the turtle's home.
+  private SegmentBuffer applyDrawingScale(SegmentBuffer segments) {
+    double scale = myProgram.getDrawingScale();
+    if (scale == 1) {
+      return segments;
+    }
+    SegmentBuffer scaled = new SegmentBuffer();
+    scaled.setLimit(segments.getLimit());
+    scaled.addTransformed(segments, scale, 0, Turtle.HOME_X * (1 - scale),
+        Turtle.HOME_Y * (1 - scale));
+    return scaled;
+  }
+
+}
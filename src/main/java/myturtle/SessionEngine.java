@@ -0,0 +1,138 @@
+package myturtle;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import myturtle.display.SegmentBuffer;
+import myturtle.programs.Program;
+
+/**
+ * An engine with no display that renders many scripts at once, each in its own
+ * RenderSession. Unlike MyTurtleEngine, which runs a single program for the user, it is
+ * meant for rendering scripts in bulk: each session gets its own program and turtle, and
+ * its own thread to run on.
+ *
+ * Sessions run on virtual threads when the Java runtime has them, and otherwise on a pool
+ * of platform threads. Either way, at most a given number of sessions run at a time, and
+ * the rest wait their turn.
+ *
+ * @author William Convertino
+ */
+public class SessionEngine implements AutoCloseable {
+
+  /**The most segments a session may draw unless another limit is set (about 75 MB).**/
+  public static final int DEFAULT_SEGMENT_LIMIT = 1 << 22;
+
+  /**The most time a session may run for unless another limit is set, in nanoseconds.**/
+  public static final long DEFAULT_TIME_LIMIT = 10_000_000_000L;
+
+  private ExecutorService myExecutor;
+
+  //Permits for the sessions that may run at once.
+  private Semaphore myPermits;
+
+  //The limits given to each new session.
+  private volatile int segmentLimit;
+  private volatile long timeLimit;
+
+  /**
+   * Constructs an engine that runs up to the given number of sessions at once.
+   *
+   * @param maxSessions the most sessions to run at once.
+   */
+  public SessionEngine(int maxSessions) {
+    if (maxSessions <= 0) {
+      throw new IllegalArgumentException("maxSessions: " + maxSessions);
+    }
+    this.myExecutor = createExecutor(maxSessions);
+    this.myPermits = new Semaphore(maxSessions);
+    this.segmentLimit = DEFAULT_SEGMENT_LIMIT;
+    this.timeLimit = DEFAULT_TIME_LIMIT;
+  }
+
+  //Creates an executor that starts a virtual thread for each session if the runtime has
+  //them (Java 21 and later), or a pool of platform threads otherwise.
+  private static ExecutorService createExecutor(int maxSessions) {
+    try {
+      Method virtualExecutor = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) virtualExecutor.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      ThreadFactory daemons = r -> {
+        Thread thread = new Thread(r, "render-session");
+        thread.setDaemon(true);
+        return thread;
+      };
+      return Executors.newFixedThreadPool(maxSessions, daemons);
+    }
+  }
+
+  /**
+   * Sets the most segments that each session started from now on may draw.
+   *
+   * @param limit the most segments per session.
+   */
+  public void setSegmentLimit(int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("limit: " + limit);
+    }
+    this.segmentLimit = limit;
+  }
+
+  /**
+   * Sets the most time that each session started from now on may run for.
+   *
+   * @param nanos the most time per session, in nanoseconds (0 if unlimited).
+   */
+  public void setTimeLimit(long nanos) {
+    if (nanos < 0) {
+      throw new IllegalArgumentException("nanos: " + nanos);
+    }
+    this.timeLimit = nanos;
+  }
+
+  /**
+   * Starts rendering a script in a new session, with a new program of the given kind.
+   *
+   * @param programName the program to run the script (one of AVAILABLE_PROGRAMS).
+   * @param script the name of the script file to run.
+   * @return the segments the script draws, once the session is done.
+   * @throws IllegalArgumentException if there is no program with the given name.
+   */
+  public Future<SegmentBuffer> submit(String programName, String script) {
+    Program program = MyTurtleEngine.createProgram(programName, new ArrayList<>());
+    if (program == null) {
+      throw new IllegalArgumentException("programName: " + programName);
+    }
+    return submit(new RenderSession(program, script, segmentLimit, timeLimit));
+  }
+
+  /**
+   * Starts running a session once fewer than the most sessions are running.
+   *
+   * @param session the session to run.
+   * @return the segments the session draws, once it is done.
+   */
+  public Future<SegmentBuffer> submit(RenderSession session) {
+    return myExecutor.submit(() -> {
+      myPermits.acquire();
+      try {
+        return session.call();
+      } finally {
+        myPermits.release();
+      }
+    });
+  }
+
+  /**
+   * Stops accepting sessions. Sessions already submitted still run.
+   */
+  @Override
+  public void close() {
+    myExecutor.shutdown();
+  }
+
+}
@@ -0,0 +1,80 @@
+package myturtle;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded, lock-free queue for handing objects from one thread to another. Exactly one
+ * thread may offer items and exactly one (other) thread may poll them. Each side only
+ * writes its own counter, and reads the other side's, so neither ever waits on a lock.
+ *
+ * @author William Convertino
+ */
+public class SpscQueue<T> {
+
+  //The items in the queue, in a ring whose size is a power of two.
+  private final Object[] slots;
+  private final int mask;
+
+  //The number of items ever polled (written only by the consumer) and ever offered
+  //(written only by the producer).
+  private final AtomicLong head;
+  private final AtomicLong tail;
+
+  /**
+   * Constructs an empty queue.
+   *
+   * @param capacity the most items the queue can hold, rounded up to a power of two.
+   */
+  public SpscQueue(int capacity) {
+    int size = capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    this.slots = new Object[size];
+    this.mask = size - 1;
+    this.head = new AtomicLong();
+    this.tail = new AtomicLong();
+  }
+
+  /**
+   * Adds an item to the end of the queue. Only called by the producer.
+   *
+   * @param item the item to add.
+   * @return false if the queue is full, in which case the item is not added.
+   */
+  public boolean offer(T item) {
+    long t = tail.get();
+    if (t - head.get() == slots.length) {
+      return false;
+    }
+    slots[(int) t & mask] = item;
+    tail.lazySet(t + 1);
+    return true;
+  }
+
+  /**
+   * Returns whether the queue is full. Only meaningful to the producer, since only the
+   * consumer can make room.
+   *
+   * @return true if an offer would fail.
+   */
+  public boolean isFull() {
+    return tail.get() - head.get() == slots.length;
+  }
+
+  /**
+   * Removes and returns the item at the front of the queue. Only called by the consumer.
+   *
+   * @return the first item, or null if the queue is empty.
+   */
+  @SuppressWarnings("unchecked")
+  public T poll() {
+    long h = head.get();
+    if (h == tail.get()) {
+      return null;
+    }
+    int slot = (int) h & mask;
+    T item = (T) slots[slot];
+    slots[slot] = null;
+    head.lazySet(h + 1);
+    return item;
+  }
+
+}
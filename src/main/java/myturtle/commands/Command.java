@@ -2,6 +2,7 @@ package myturtle.commands;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -13,8 +14,19 @@ import java.util.List;
  **/
 public class Command {
 
+  //The integers (from -CACHED_INTEGERS to CACHED_INTEGERS) whose strings are shared.
+  private static final int CACHED_INTEGERS = 1024;
+  private static final String[] INTEGER_STRINGS = new String[2 * CACHED_INTEGERS + 1];
+
+  //Shared by every command with no arguments.
+  private static final double[] NO_NUMBERS = new double[0];
+
   private String command;
   private List<String> args;
+
+  //The value of each argument that is a number (NaN for any argument that is not).
+  private double[] numbers;
+
   /**
    * Constructs a new command data type given a passed command
    * and arguments.
@@ -25,6 +37,10 @@ public class Command {
   public Command(String command, String[] args) {
     this.command = command;
     this.args = new ArrayList<>(Arrays.asList(args));
+    this.numbers = new double[args.length];
+    for (int i = 0; i < args.length; i++) {
+      numbers[i] = parseNumber(args[i]);
+    }
   }
 
   /**
@@ -38,11 +54,14 @@ public class Command {
     this.command = command;
     this.args = new ArrayList<>();
     this.args.add(arg);
+    this.numbers = new double[] {parseNumber(arg)};
   }
 
 
   /**
-   * Constructs a new command data type using a passed command line.
+   * Constructs a new command data type using a passed command line. Words are separated by
+   * any amount of whitespace, and an argument in double quotes (such as "fd 10 rt 90") is
+   * kept as a single argument without its quotes.
    *
    * @param commandLine the command line to read, including the command and any arguments.
    */
@@ -50,25 +69,172 @@ public class Command {
     if (commandLine == null) {
       this.command = null;
       return;
-    } else if (commandLine.trim()=="") {
+    }
+    int start = skipWhitespace(commandLine, 0);
+    if (start == commandLine.length()) {
       this.command = "";
-      this.args = new ArrayList<>();
-    } else {
-      String[] commandElements = commandLine.split(" ");
-      this.command = commandElements[0].toLowerCase();
-
-      if (commandElements.length > 2 && commandElements[2].substring(0,1).equals("\"")) {
-        ArrayList<String> args = new ArrayList();
-        args.add(commandElements[1]);
-        args.add(commandLine.split("\"")[1]);
-        this.args = args;
-        return;
+      this.args = Collections.emptyList();
+      this.numbers = NO_NUMBERS;
+      return;
+    }
+    int end = findTokenEnd(commandLine, start);
+    this.command = readName(commandLine, start, end);
+
+    int argCount = 0;
+    for (int i = skipWhitespace(commandLine, end); i < commandLine.length();
+        i = skipWhitespace(commandLine, findTokenEnd(commandLine, i))) {
+      argCount++;
+    }
+    if (argCount == 0) {
+      this.args = Collections.emptyList();
+      this.numbers = NO_NUMBERS;
+      return;
+    }
+    String[] argArray = new String[argCount];
+    this.numbers = new double[argCount];
+    int i = skipWhitespace(commandLine, end);
+    for (int arg = 0; arg < argCount; arg++) {
+      end = findTokenEnd(commandLine, i);
+      argArray[arg] = readArgument(commandLine, i, end);
+      numbers[arg] = commandLine.charAt(i) == '"' ? Double.NaN : parseNumber(argArray[arg]);
+      i = skipWhitespace(commandLine, end);
+    }
+    this.args = Arrays.asList(argArray);
+  }
+
+  //Returns the index of the first non-whitespace character at or after the given index.
+  private static int skipWhitespace(String line, int i) {
+    while (i < line.length() && Character.isWhitespace(line.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  //Returns the index just past the word starting at the given index. A word starting with
+  //a quote ends just past the closing quote (or at the end of the line).
+  private static int findTokenEnd(String line, int i) {
+    if (line.charAt(i) == '"') {
+      int close = line.indexOf('"', i + 1);
+      return close < 0 ? line.length() : close + 1;
+    }
+    while (i < line.length() && !Character.isWhitespace(line.charAt(i))) {
+      i++;
+    }
+    return i;
+  }
+
+  //Returns the lower-case name of a command, sharing the string of a known command.
+  private static String readName(String line, int start, int end) {
+    String name = CommandTable.findName(line, start, end);
+    return name != null ? name : line.substring(start, end).toLowerCase();
+  }
+
+  //Returns an argument, sharing the string of a small integer and removing any quotes.
+  private static String readArgument(String line, int start, int end) {
+    if (line.charAt(start) == '"') {
+      return line.substring(start + 1, line.charAt(end - 1) == '"' && end - 1 > start ? end - 1 : end);
+    }
+    String cached = getIntegerString(line, start, end);
+    return cached != null ? cached : line.substring(start, end);
+  }
+
+  //Returns the shared string of the integer written between the given indices, or null if
+  //it is not a small integer written in its usual form.
+  private static String getIntegerString(String line, int start, int end) {
+    boolean negative = line.charAt(start) == '-';
+    int digits = negative ? start + 1 : start;
+    if (digits == end || end - digits > 4 || (line.charAt(digits) == '0' && end - digits > 1)) {
+      return null;
+    }
+    int value = 0;
+    for (int i = digits; i < end; i++) {
+      char c = line.charAt(i);
+      if (c < '0' || c > '9') {
+        return null;
       }
+      value = value * 10 + (c - '0');
+    }
+    if (value > CACHED_INTEGERS || (negative && value == 0)) {
+      return null;
+    }
+    int index = (negative ? -value : value) + CACHED_INTEGERS;
+    String cached = INTEGER_STRINGS[index];
+    if (cached == null) {
+      cached = Integer.toString(index - CACHED_INTEGERS);
+      INTEGER_STRINGS[index] = cached;
+    }
+    return cached;
+  }
 
-      this.args = commandElements.length > 1 ? new ArrayList<>(
-          Arrays.asList(Arrays.copyOfRange(commandElements, 1, commandElements.length)))
-          : new ArrayList<>();
+  /**
+   * Returns the value of an argument, or NaN if it is not a finite number. A number is an
+   * optional sign followed by decimal digits, with an optional decimal point and fraction,
+   * such as "-12", "+5", "2.5", "3." or ".5". Exponents, suffixes (such as "1d" or "1f"),
+   * hexadecimal, spaces, "NaN" and "Infinity" are not numbers. Short integers are read
+   * directly, without going through Double.parseDouble.
+   *
+   * @param arg the argument to read.
+   * @return the value of the argument, or NaN if it is not a number.
+   */
+  public static double parseNumber(String arg) {
+    if (arg == null || arg.isEmpty()) {
+      return Double.NaN;
+    }
+    boolean negative = arg.charAt(0) == '-';
+    int i = negative || arg.charAt(0) == '+' ? 1 : 0;
+    int digits = 0;
+    int value = 0;
+    boolean point = false;
+    boolean ascii = true;
+    for (; i < arg.length(); i++) {
+      char c = arg.charAt(i);
+      int digit = c >= '0' && c <= '9' ? c - '0' : Character.digit(c, 10);
+      if (digit >= 0) {
+        value = ++digits <= 9 ? value * 10 + digit : value;
+        ascii &= c <= '9';
+      } else if (c == '.' && !point) {
+        point = true;
+      } else {
+        return Double.NaN;
+      }
+    }
+    if (digits == 0) {
+      return Double.NaN;
+    } else if (!point && digits <= 9) {
+      return negative ? -value : value;
     }
+    double number = Double.parseDouble(ascii ? arg : toAsciiDigits(arg));
+    return Double.isInfinite(number) ? Double.NaN : number;
+  }
+
+  //Returns a number with each of its digits written as an ASCII digit.
+  private static String toAsciiDigits(String number) {
+    StringBuilder ascii = new StringBuilder(number.length());
+    for (int i = 0; i < number.length(); i++) {
+      int digit = Character.digit(number.charAt(i), 10);
+      ascii.append(digit >= 0 ? (char) ('0' + digit) : number.charAt(i));
+    }
+    return ascii.toString();
+  }
+
+  /**
+   * Returns whether the argument at the given index is a number.
+   *
+   * @param i the index of the argument.
+   * @return true if the argument is a finite number.
+   */
+  public boolean isNumber(int i) {
+    return !Double.isNaN(numbers[i]);
+  }
+
+  /**
+   * Returns the value of the argument at the given index, parsed when the command was made.
+   *
+   * @param i the index of the argument.
+   * @return the value of the argument, or NaN if it is not a number.
+   */
+  public double getNumber(int i) {
+    return numbers[i];
   }
 
   /**
@@ -1,6 +1,6 @@
 package myturtle.commands;
 
-import java.lang.reflect.Method;
+import java.lang.invoke.MethodHandle;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
@@ -9,6 +9,15 @@ import myturtle.error_handling.InvalidCommandException;
 
 public class CommandReader {
 
+  /**
+   * Constructs a new command reader. The dispatch table of its class is built now, if no
+   * other reader of the class has built it yet, so that its command names are known to
+   * the tokenizer before any script for it is read.
+   */
+  public CommandReader() {
+    CommandTable.forClass(getClass());
+  }
+
   /**
    * Returns the negated version of a string. In other words, if the string represents a
    * negative integer, it becomes positive, and vice versa.
@@ -34,37 +43,39 @@ public class CommandReader {
    * @return any objects returned by the executed command.
    * @throws InvalidCommandException if an invalid command is given.
    * @throws InvalidArgumentException if an invalid argument is passed.
+   * @throws IllegalStateException if the command could not be run in the reader's state.
    */
   public Object executeCommand(Command command) throws Exception {
 
     //If the command is not to be run, return null.
-    if (command == null || command.getCommand().equals("") || command.getCommand().substring(0,1).equals("#")) {
+    if (command == null || command.getCommand().equals("") || command.getCommand().charAt(0) == '#') {
       return null;
     }
 
-    //Otherwise, attempt to run the command.
-    try {
-      if (command.getArgs().size() == 2) {
-        Method myMethod = getClass().getMethod(command.getCommand(), String.class, String.class);
-        return myMethod.invoke(this, command.getArgs().get(0), command.getArgs().get(1));
-      } else if (command.getArgs().size() == 1) {
-        Method myMethod = getClass().getMethod(command.getCommand(), String.class);
-        return myMethod.invoke(this,command.getArgs().get(0));
+    //Otherwise, look up the command in this class's dispatch table and run it.
+    List<String> args = command.getArgs();
+    if (args.size() > CommandTable.MAX_ARGS) {
+      throw new InvalidArgumentException(command);
+    }
+    MethodHandle myHandle = CommandTable.forClass(getClass()).get(command.getCommand(), args.size());
 
-      } else if (command.getArgs().size() == 0) {
-        Method myMethod = getClass().getMethod(command.getCommand());
-        return myMethod.invoke(this);
+    //If the command is not present, throw an Invalid Command exception.
+    if (myHandle == null) {
+      throw new InvalidCommandException(command);
+    }
 
+    try {
+      if (args.size() == 2) {
+        return myHandle.invokeExact((Object) this, (Object) args.get(0), (Object) args.get(1));
+      } else if (args.size() == 1) {
+        return myHandle.invokeExact((Object) this, (Object) args.get(0));
       } else {
-        throw new InvalidArgumentException(command);
+        return myHandle.invokeExact((Object) this);
       }
-
-      //If the command is not present, throw an Invalid Command exception.
-    } catch (NoSuchMethodException e) {
-      throw new InvalidCommandException(command);
-    } catch (InvalidCommandException e) {
+    } catch (IllegalStateException e) {
+      //The command was valid, but the reader could not run it (such as a full drawing).
       throw e;
-    } catch (Exception e) {
+    } catch (Throwable e) {
       throw new InvalidArgumentException(command);
     }
   }
@@ -0,0 +1,179 @@
+package myturtle.commands;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A precompiled dispatch table mapping each command name and argument count to
+ * the public method that runs it. Every public method of a command reader whose
+ * parameters are all Strings is treated as a command. Each table is built once
+ * per class and shared by every instance, so no reflection happens per command.
+ *
+ * @author William Convertino
+ */
+public final class CommandTable {
+
+  /**The largest number of arguments a command method may take.**/
+  public static final int MAX_ARGS = 2;
+
+  //One table per command reader class, built on first use.
+  private static final ClassValue<CommandTable> TABLES = new ClassValue<>() {
+    @Override
+    protected CommandTable computeValue(Class<?> type) {
+      return new CommandTable(type);
+    }
+  };
+
+  //The name of every command in every table built so far, in an open-addressed hash table
+  //that is replaced rather than changed whenever names are added.
+  private static volatile String[] commandNames = new String[64];
+  private static int commandNameCount;
+
+  //Maps each command name to its handles, indexed by argument count.
+  private final Map<String, MethodHandle[]> myHandles;
+
+  //Builds the table from every public String-only method of the given class.
+  private CommandTable(Class<?> type) {
+    this.myHandles = new HashMap<>();
+    MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+    for (Method m : type.getMethods()) {
+      if (!isCommandMethod(m)) {
+        continue;
+      }
+      try {
+        MethodHandle handle = lookup.unreflect(m);
+        if (Modifier.isStatic(m.getModifiers())) {
+          handle = MethodHandles.dropArguments(handle, 0, Object.class);
+        }
+        handle = handle.asType(MethodType.genericMethodType(m.getParameterCount() + 1));
+        myHandles.computeIfAbsent(m.getName(), k -> new MethodHandle[MAX_ARGS + 1])
+            [m.getParameterCount()] = handle;
+      } catch (IllegalAccessException e) {
+        //Methods that cannot be accessed publicly are not commands.
+      }
+    }
+    addCommandNames(myHandles.keySet());
+  }
+
+  //Adds the given command names to the names shared by the tokenizer. Only lower-case
+  //names are added, since commands are looked up by their lower-case names.
+  private static synchronized void addCommandNames(Iterable<String> names) {
+    String[] table = commandNames;
+    int count = commandNameCount;
+    for (String name : names) {
+      if (!name.equals(name.toLowerCase()) || findName(table, name, 0, name.length()) != null) {
+        continue;
+      }
+      if (2 * (count + 1) > table.length) {
+        table = rehash(table, table.length * 2);
+      } else if (table == commandNames) {
+        table = table.clone();
+      }
+      insert(table, name);
+      count++;
+    }
+    commandNameCount = count;
+    commandNames = table;
+  }
+
+  //Returns a table twice the given size holding the same names.
+  private static String[] rehash(String[] table, int size) {
+    String[] larger = new String[size];
+    for (String name : table) {
+      if (name != null) {
+        insert(larger, name);
+      }
+    }
+    return larger;
+  }
+
+  //Puts a name in the first free slot from its hash.
+  private static void insert(String[] table, String name) {
+    int mask = table.length - 1;
+    int i = hash(name, 0, name.length()) & mask;
+    while (table[i] != null) {
+      i = (i + 1) & mask;
+    }
+    table[i] = name;
+  }
+
+  //Returns the hash of the lower-case form of the given part of a string.
+  private static int hash(String text, int start, int end) {
+    int hash = 0;
+    for (int i = start; i < end; i++) {
+      hash = 31 * hash + Character.toLowerCase(text.charAt(i));
+    }
+    return hash ^ (hash >>> 16);
+  }
+
+  //Returns the name in the given table matching part of a string, ignoring case.
+  private static String findName(String[] table, String text, int start, int end) {
+    int mask = table.length - 1;
+    for (int i = hash(text, start, end) & mask; table[i] != null; i = (i + 1) & mask) {
+      String name = table[i];
+      if (name.length() == end - start && text.regionMatches(true, start, name, 0, name.length())) {
+        return name;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns the shared name of a command written in part of a string, ignoring case, if
+   * it is a command of any table built so far. Commands read from a script can then share
+   * one string per name rather than each holding a copy.
+   *
+   * @param text the string containing the name.
+   * @param start the index of the first character of the name.
+   * @param end the index just past the last character of the name.
+   * @return the lower-case name of the command, or null if it is not a known command.
+   */
+  public static String findName(String text, int start, int end) {
+    return findName(commandNames, text, start, end);
+  }
+
+  //Checks whether the given method can be called as a command.
+  private static boolean isCommandMethod(Method m) {
+    if (m.getParameterCount() > MAX_ARGS) {
+      return false;
+    }
+    for (Class<?> parameter : m.getParameterTypes()) {
+      if (parameter != String.class) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the dispatch table for the given command reader class.
+   *
+   * @param type the class whose commands should be looked up.
+   * @return the (shared) dispatch table of that class.
+   */
+  public static CommandTable forClass(Class<?> type) {
+    return TABLES.get(type);
+  }
+
+  /**
+   * Returns the handle for the given command and number of arguments. The handle
+   * takes the receiver followed by each argument, and returns the command's result.
+   *
+   * @param command the name of the command.
+   * @param argCount the number of arguments passed to the command.
+   * @return the handle of the command, or null if no such command exists.
+   */
+  public MethodHandle get(String command, int argCount) {
+    MethodHandle[] handles = myHandles.get(command);
+    if (handles == null || argCount < 0 || argCount > MAX_ARGS) {
+      return null;
+    }
+    return handles[argCount];
+  }
+
+}
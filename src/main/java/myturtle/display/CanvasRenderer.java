@@ -0,0 +1,280 @@
+package myturtle.display;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.transform.Affine;
+
+/**
+ * A renderer that strokes segments directly onto a single JavaFX Canvas rather than adding
+ * a node for each one to the scene graph. New segments are batched and stroked once per
+ * frame, with connected segments stroked as one continuous line, and every other element
+ * (such as the turtle itself) is kept as a node above the canvas. When the viewport changes,
+ * only the segments found in it by a SegmentIndex are redrawn, so navigating a large drawing
+ * does not cost more than the part of it in view, and a DetailFilter leaves out segments
+ * too small to be seen at the current zoom. A drawing scale set by the program is applied
+ * to the canvas, with the width of each line divided by it, and to the nodes scaled with
+ * the drawing, while the nodes that are not (such as the turtles) are kept above them.
+ *
+ * @author William Convertino
+ */
+public class CanvasRenderer implements DisplayRenderer {
+
+  //How far (in pixels) past the edges of the canvas to look for segments in view, so that
+  //wide strokes are not cut off.
+  private static final double VIEW_MARGIN = 8;
+
+  //The canvas that segments are drawn onto, the group of nodes scaled with the drawing
+  //above it, and the group of nodes that are not.
+  private Canvas myCanvas;
+  private Group myShapes;
+  private Group myOverlay;
+  private Group myLayer;
+
+  //The transform that shows the drawing through the viewport, applied to the nodes that are
+  //not scaled with the drawing, and the one that also scales the drawing, applied to the
+  //canvas and to the nodes that are.
+  private Affine myTransform;
+  private Affine mySegmentTransform;
+  private Affine myShapeTransform;
+
+  //Every node currently drawn.
+  private Set<Node> myElements;
+
+  //The viewport, and the scale of the segments and the point they are scaled around.
+  private Viewport myViewport;
+  private double drawingScale;
+  private double pivotX;
+  private double pivotY;
+
+  //The index used to find the segments in view, and the filter of segments too small to see.
+  private SegmentIndex myIndex;
+  private DetailFilter myFilter;
+
+  //The segments being drawn, the generation they were drawn from, and how many are drawn.
+  private SegmentBuffer mySegments;
+  private int myGeneration;
+  private int drawnSegments;
+
+  //Where the last drawn segment ended when it was drawn, since it may have been extended.
+  private float drawnEndX;
+  private float drawnEndY;
+
+  //Signals whether the whole canvas must be redrawn.
+  private boolean redrawAll;
+
+  /**
+   * Constructs a new canvas renderer that fills the given area.
+   *
+   * @param bounds the area of the display to draw on.
+   */
+  public CanvasRenderer(Rectangle bounds) {
+    this.myCanvas = new Canvas();
+    myCanvas.widthProperty().bind(bounds.widthProperty());
+    myCanvas.heightProperty().bind(bounds.heightProperty());
+    myCanvas.widthProperty().addListener(e -> redrawAll = true);
+    myCanvas.heightProperty().addListener(e -> redrawAll = true);
+    myCanvas.setMouseTransparent(true);
+    this.myShapes = new Group();
+    this.myOverlay = new Group();
+    this.myLayer = new Group(myCanvas, myShapes, myOverlay);
+    this.myTransform = new Affine();
+    myOverlay.getTransforms().add(myTransform);
+    this.mySegmentTransform = new Affine();
+    this.myShapeTransform = new Affine();
+    myShapes.getTransforms().add(myShapeTransform);
+    this.myElements = Collections.newSetFromMap(new IdentityHashMap<>());
+    this.myViewport = new Viewport();
+    this.drawingScale = 1;
+    this.myIndex = new SegmentIndex();
+    this.myFilter = new DetailFilter(DetailFilter.DEFAULT_MIN_SIZE);
+  }
+
+  @Override
+  public Node getLayer() {
+    return myLayer;
+  }
+
+  @Override
+  public boolean contains(Node element) {
+    return myElements.contains(element);
+  }
+
+  @Override
+  public void add(Node element) {
+    if (myElements.add(element)) {
+      getGroup(element).getChildren().add(element);
+    }
+  }
+
+  @Override
+  public void remove(Node element) {
+    if (myElements.remove(element)) {
+      getGroup(element).getChildren().remove(element);
+    }
+  }
+
+  //Returns the group the given element belongs in.
+  private Group getGroup(Node element) {
+    return DisplayRenderer.isScaledWithDrawing(element) ? myShapes : myOverlay;
+  }
+
+  @Override
+  public void syncSegments(SegmentBuffer segments) {
+    if (segments != mySegments || segments.getGeneration() != myGeneration
+        || segments.size() < drawnSegments) {
+      mySegments = segments;
+      myGeneration = segments.getGeneration();
+      redrawAll = true;
+    }
+  }
+
+  @Override
+  public void clear() {
+    myShapes.getChildren().clear();
+    myOverlay.getChildren().clear();
+    myElements.clear();
+    mySegments = null;
+    redrawAll = true;
+  }
+
+  @Override
+  public void setViewport(Viewport viewport) {
+    myViewport = viewport;
+    myTransform.setToTransform(viewport.getScale(), 0, viewport.getTranslateX(),
+        0, viewport.getScale(), viewport.getTranslateY());
+    updateSegmentTransform();
+  }
+
+  @Override
+  public void setDrawingScale(double scale, double pivotX, double pivotY) {
+    this.drawingScale = scale;
+    this.pivotX = pivotX;
+    this.pivotY = pivotY;
+    updateSegmentTransform();
+  }
+
+  //Shows the segments and the nodes scaled with them, scaled by the drawing scale, through
+  //the viewport.
+  private void updateSegmentTransform() {
+    Viewport view = myViewport.scaledAbout(drawingScale, pivotX, pivotY);
+    mySegmentTransform.setToTransform(view.getScale(), 0, view.getTranslateX(),
+        0, view.getScale(), view.getTranslateY());
+    myShapeTransform.setToTransform(mySegmentTransform);
+    redrawAll = true;
+  }
+
+  @Override
+  public void setDetail(double minSize) {
+    myFilter.setMinSize(minSize);
+    redrawAll = true;
+  }
+
+  @Override
+  public void render() {
+    GraphicsContext gc = myCanvas.getGraphicsContext2D();
+    if (redrawAll) {
+      gc.setTransform(1, 0, 0, 1, 0, 0);
+      gc.clearRect(0, 0, myCanvas.getWidth(), myCanvas.getHeight());
+      gc.setTransform(mySegmentTransform);
+      myFilter.reset(mySegmentTransform.getMxx(), mySegmentTransform.getTx(),
+          mySegmentTransform.getTy());
+      drawnSegments = 0;
+      if (mySegments != null) {
+        strokeSegments(gc, mySegments, findVisibleSegments());
+        drawnSegments = mySegments.size();
+      }
+      redrawAll = false;
+    } else if (mySegments != null && drawnSegments > 0) {
+      strokeExtension(gc, mySegments, drawnSegments - 1);
+    }
+    if (mySegments != null) {
+      strokeSegments(gc, mySegments, drawnSegments, mySegments.size());
+      drawnSegments = mySegments.size();
+      if (drawnSegments > 0) {
+        drawnEndX = mySegments.getX2(drawnSegments - 1);
+        drawnEndY = mySegments.getY2(drawnSegments - 1);
+      }
+    }
+  }
+
+  //Returns the indices of the segments that can be seen on the canvas.
+  private int[] findVisibleSegments() {
+    Affine view = mySegmentTransform;
+    double margin = VIEW_MARGIN / view.getMxx();
+    double minX = (-view.getTx()) / view.getMxx() - margin;
+    double minY = (-view.getTy()) / view.getMyy() - margin;
+    double maxX = (myCanvas.getWidth() - view.getTx()) / view.getMxx() + margin;
+    double maxY = (myCanvas.getHeight() - view.getTy()) / view.getMyy() + margin;
+    return myIndex.query(mySegments, minX, minY, maxX, maxY);
+  }
+
+  //Strokes the part of an already drawn segment that was added by extending it.
+  private void strokeExtension(GraphicsContext gc, SegmentBuffer segments, int i) {
+    if (segments.getX2(i) == drawnEndX && segments.getY2(i) == drawnEndY) {
+      return;
+    }
+    int style = segments.getStyle(i);
+    gc.setStroke(DisplayRenderer.toColor(segments.getStyleColor(style)));
+    gc.setLineWidth(segments.getStyleWidth(style) / drawingScale);
+    gc.strokeLine(drawnEndX, drawnEndY, segments.getX2(i), segments.getY2(i));
+  }
+
+  //Strokes the given range of segments, using a single path for each run of segments
+  //with the same style, and only moving the pen between segments that are not connected.
+  private void strokeSegments(GraphicsContext gc, SegmentBuffer segments, int from, int to) {
+    int currentStyle = -1;
+    for (int i = from; i < to; i++) {
+      currentStyle = strokeSegment(gc, segments, i, i > from && segments.isConnected(i),
+          currentStyle);
+    }
+    if (currentStyle >= 0) {
+      gc.stroke();
+    }
+  }
+
+  //Strokes the segments at the given indices (in increasing order) in the same way.
+  private void strokeSegments(GraphicsContext gc, SegmentBuffer segments, int[] indices) {
+    int currentStyle = -1;
+    for (int k = 0; k < indices.length; k++) {
+      int i = indices[k];
+      currentStyle = strokeSegment(gc, segments, i,
+          k > 0 && indices[k - 1] == i - 1 && segments.isConnected(i), currentStyle);
+    }
+    if (currentStyle >= 0) {
+      gc.stroke();
+    }
+  }
+
+  //Adds a segment to the current path, unless it is too small to see, starting a new path
+  //if its style is not the current one. Returns the style of the current path.
+  private int strokeSegment(GraphicsContext gc, SegmentBuffer segments, int i,
+      boolean connected, int currentStyle) {
+    int action = myFilter.check(segments, i, connected, i == segments.size() - 1);
+    if (action == DetailFilter.SKIP) {
+      return currentStyle;
+    }
+    connected = action == DetailFilter.CONTINUE;
+    int style = segments.getStyle(i);
+    if (style != currentStyle) {
+      if (currentStyle >= 0) {
+        gc.stroke();
+      }
+      gc.setStroke(DisplayRenderer.toColor(segments.getStyleColor(style)));
+      gc.setLineWidth(segments.getStyleWidth(style) / drawingScale);
+      gc.beginPath();
+      connected = false;
+    }
+    if (!connected) {
+      gc.moveTo(segments.getX1(i), segments.getY1(i));
+    }
+    gc.lineTo(segments.getX2(i), segments.getY2(i));
+    return style;
+  }
+
+}
@@ -0,0 +1,176 @@
+package myturtle.display;
+
+import java.util.Arrays;
+
+/**
+ * Decides which segments are worth drawing at a given scale, so that a drawing made of
+ * millions of segments smaller than a pixel costs about as much to draw as the pixels it
+ * covers. Within a connected run of segments, a segment that ends closer than the minimum
+ * size (in pixels) to the last point drawn is skipped, which merges it into the next
+ * segment drawn. Since a point is only skipped while it is that close, the drawn line never
+ * strays further than the minimum size from the real one. A segment that fits inside a
+ * single pixel already covered by such a segment of the same style is dropped.
+ *
+ * @author William Convertino
+ */
+public class DetailFilter {
+
+  /**The minimum size, in pixels, of a drawn segment unless another one is set.**/
+  public static final double DEFAULT_MIN_SIZE = 0.5;
+
+  /**What to do with a segment: skip it, draw it on from the last point drawn, or draw it
+   * as the start of a new line.**/
+  public static final int SKIP = 0;
+  public static final int CONTINUE = 1;
+  public static final int START = 2;
+
+  //The most covered pixels that are remembered at once, after which they are forgotten.
+  private static final int MAX_PIXELS = 1 << 19;
+
+  //The pixel coordinates that can be remembered lie between -PIXEL_LIMIT and PIXEL_LIMIT.
+  private static final int PIXEL_LIMIT = 1 << 23;
+
+  private double minSize;
+
+  //The transform from the drawing to pixels.
+  private double scale;
+  private double translateX;
+  private double translateY;
+
+  //The last point drawn (in pixels), and whether the line through it can be drawn on.
+  private double lastX;
+  private double lastY;
+  private boolean lineOpen;
+
+  //The covered pixels, as a hash set of keys (where 0 marks an empty slot).
+  private long[] pixels;
+  private int pixelCount;
+
+  /**
+   * Constructs a new filter at a scale of 1.
+   *
+   * @param minSize the minimum size, in pixels, of a drawn segment (0 to draw every segment).
+   */
+  public DetailFilter(double minSize) {
+    this.minSize = minSize;
+    this.pixels = new long[1024];
+    reset(1, 0, 0);
+  }
+
+  /**
+   * Sets the minimum size of a drawn segment. The filter should be reset afterwards.
+   *
+   * @param minSize the minimum size, in pixels, of a drawn segment (0 to draw every segment).
+   */
+  public void setMinSize(double minSize) {
+    this.minSize = minSize;
+  }
+
+  /**
+   * Returns the minimum size of a drawn segment.
+   *
+   * @return the minimum size, in pixels.
+   */
+  public double getMinSize() {
+    return minSize;
+  }
+
+  /**
+   * Starts filtering a new drawing, forgetting everything drawn before.
+   *
+   * @param scale the number of pixels per unit of the drawing.
+   * @param translateX the x coordinate, in pixels, of the drawing's origin.
+   * @param translateY the y coordinate, in pixels, of the drawing's origin.
+   */
+  public void reset(double scale, double translateX, double translateY) {
+    this.scale = scale;
+    this.translateX = translateX;
+    this.translateY = translateY;
+    this.lineOpen = false;
+    Arrays.fill(pixels, 0);
+    pixelCount = 0;
+  }
+
+  /**
+   * Decides what to do with the next segment to be drawn. Segments must be given in the
+   * order they are drawn, and every segment that is not skipped must be drawn.
+   *
+   * @param segments the buffer holding the segment.
+   * @param i the index of the segment.
+   * @param connected whether the segment continues the one checked before it.
+   * @param keep whether the segment must be drawn no matter its size.
+   * @return SKIP, CONTINUE (draw a line from the last point drawn to the segment's end),
+   *     or START (draw the segment as the start of a new line).
+   */
+  public int check(SegmentBuffer segments, int i, boolean connected, boolean keep) {
+    if (!connected || !lineOpen) {
+      lineOpen = false;
+      lastX = segments.getX1(i) * scale + translateX;
+      lastY = segments.getY1(i) * scale + translateY;
+    }
+    double endX = segments.getX2(i) * scale + translateX;
+    double endY = segments.getY2(i) * scale + translateY;
+    if (!keep && minSize > 0) {
+      double dx = endX - lastX;
+      double dy = endY - lastY;
+      if (lineOpen && dx * dx + dy * dy < minSize * minSize) {
+        return SKIP;
+      }
+      if (Math.floor(lastX) == Math.floor(endX) && Math.floor(lastY) == Math.floor(endY)
+          && !cover(endX, endY, segments.getStyle(i))) {
+        lineOpen = false;
+        return SKIP;
+      }
+    }
+    int action = lineOpen ? CONTINUE : START;
+    lastX = endX;
+    lastY = endY;
+    lineOpen = true;
+    return action;
+  }
+
+  //Marks a pixel as covered by the given style, returning false if it already was.
+  private boolean cover(double x, double y, int style) {
+    if (Math.abs(x) >= PIXEL_LIMIT || Math.abs(y) >= PIXEL_LIMIT) {
+      return true;
+    }
+    if (pixelCount == MAX_PIXELS) {
+      Arrays.fill(pixels, 0);
+      pixelCount = 0;
+    }
+    if (pixelCount * 2 >= pixels.length) {
+      rehash(pixels.length * 2);
+    }
+    long key = ((long) ((int) Math.floor(x) + PIXEL_LIMIT) << 39)
+        | ((long) ((int) Math.floor(y) + PIXEL_LIMIT) << 15) | style;
+    key++;
+    int slot = findSlot(pixels, key);
+    if (pixels[slot] == key) {
+      return false;
+    }
+    pixels[slot] = key;
+    pixelCount++;
+    return true;
+  }
+
+  //Returns the slot of a table holding the given key, or the empty slot where it belongs.
+  private static int findSlot(long[] table, long key) {
+    int mask = table.length - 1;
+    int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+    while (table[slot] != 0 && table[slot] != key) {
+      slot = (slot + 1) & mask;
+    }
+    return slot;
+  }
+
+  private void rehash(int capacity) {
+    long[] table = new long[capacity];
+    for (long key : pixels) {
+      if (key != 0) {
+        table[findSlot(table, key)] = key;
+      }
+    }
+    pixels = table;
+  }
+
+}
@@ -10,7 +10,9 @@ import javafx.scene.Scene;
 import javafx.scene.control.Alert;
 import javafx.scene.control.Alert.AlertType;
 import javafx.scene.control.Button;
+import javafx.scene.control.ProgressBar;
 import javafx.scene.control.TextField;
+import javafx.scene.input.MouseButton;
 import javafx.scene.layout.Background;
 import javafx.scene.layout.BackgroundFill;
 import javafx.scene.layout.BorderPane;
@@ -28,6 +30,13 @@ public class Display {
   public static final int VERT_PADDING = 30;
   public static final int BUTTON_SPACING = 10;
   public static final int GO_BUTTON_WIDTH = 40;
+
+  /**The amount the canvas is zoomed by for each step of the scroll wheel.**/
+  public static final double ZOOM_STEP = 1.25;
+
+  /**The available ways of rendering the canvas.**/
+  public static final String NODE_RENDERING = "nodes";
+  public static final String CANVAS_RENDERING = "canvas";
   private static final double CANVAS_WIDTH_FACTOR = 0.8;
   private static final double CANVAS_HEIGHT_FACTOR = 0.6;
   private static final String DEFAULT_RESOURCE_PACKAGE = "myturtle.display.resources.";
@@ -48,10 +57,24 @@ public class Display {
   private BorderPane root;
   private Group canvasDisplay;
   private Rectangle canvas;
+  private Group viewportLayer;
+  private Viewport myViewport;
+  private double drawingScale = 1;
+  private double drawingPivotX;
+  private double drawingPivotY;
+  private double detailSize = DetailFilter.DEFAULT_MIN_SIZE;
+  private HistoryLayer myHistory;
+  private int historyLimit;
+  private SegmentBuffer historySegments;
+  private int historyGeneration;
+  private DisplayRenderer myRenderer;
+  private double dragX;
+  private double dragY;
   private VBox bottomPanel;
   private HBox nodePanel;
   private HBox commandLinePanel;
   private TextField commandDisplay;
+  private ProgressBar loadProgress;
 
 
   /**
@@ -109,10 +132,165 @@ public class Display {
     canvasWidth = (int) (myScene.getWidth() * CANVAS_WIDTH_FACTOR);
     canvasHeight = (int) (myScene.getHeight() * CANVAS_HEIGHT_FACTOR);
     initializeCanvasProps();
-    canvasDisplay = new Group(canvas);
+    myRenderer = new NodeRenderer();
+    myViewport = new Viewport();
+    myHistory = new HistoryLayer(canvas);
+    viewportLayer = new Group(myHistory.getLayer(), myRenderer.getLayer());
+    Rectangle clip = new Rectangle();
+    clip.widthProperty().bind(canvas.widthProperty());
+    clip.heightProperty().bind(canvas.heightProperty());
+    viewportLayer.setClip(clip);
+    canvasDisplay = new Group(canvas, viewportLayer);
+    initializeNavigation();
     root.setCenter(canvasDisplay);
   }
 
+  /**
+   * Lets the user navigate the canvas with the mouse: scrolling zooms in and out around
+   * the pointer, dragging pans, and double-clicking returns to the original view.
+   */
+  private void initializeNavigation() {
+    canvasDisplay.setOnScroll(e -> {
+      if (e.getDeltaY() != 0) {
+        myViewport.zoom(e.getDeltaY() > 0 ? ZOOM_STEP : 1 / ZOOM_STEP, e.getX(), e.getY());
+        updateViewport();
+      }
+    });
+    canvasDisplay.setOnMousePressed(e -> {
+      dragX = e.getX();
+      dragY = e.getY();
+    });
+    canvasDisplay.setOnMouseDragged(e -> {
+      myViewport.pan(e.getX() - dragX, e.getY() - dragY);
+      dragX = e.getX();
+      dragY = e.getY();
+      updateViewport();
+    });
+    canvasDisplay.setOnMouseClicked(e -> {
+      if (e.getButton() == MouseButton.PRIMARY && e.getClickCount() == 2) {
+        myViewport.reset();
+        updateViewport();
+      }
+    });
+  }
+
+  //Shows the canvas through the current viewport.
+  private void updateViewport() {
+    myHistory.setViewport(getDrawingViewport());
+    myRenderer.setViewport(myViewport);
+    myRenderer.render();
+  }
+
+  //Returns the viewport the segments are seen through, which also scales them by the
+  //drawing scale.
+  private Viewport getDrawingViewport() {
+    return myViewport.scaledAbout(drawingScale, drawingPivotX, drawingPivotY);
+  }
+
+  /**
+   * Scales the segments drawn by the program, and every element scaled with them (such as
+   * stamps), about a point, without drawing them again. The width of their lines stays as
+   * it is, as do the elements that are not scaled with the drawing, such as the turtles.
+   *
+   * @param scale the amount the segments are scaled by, which must be positive.
+   * @param pivotX the x coordinate to scale around.
+   * @param pivotY the y coordinate to scale around.
+   * @throws IllegalArgumentException if the scale is not positive.
+   */
+  public void setDrawingScale(double scale, double pivotX, double pivotY) {
+    if (!(scale > 0)) {
+      throw new IllegalArgumentException(String.valueOf(scale));
+    }
+    if (scale == drawingScale && pivotX == drawingPivotX && pivotY == drawingPivotY) {
+      return;
+    }
+    drawingScale = scale;
+    drawingPivotX = pivotX;
+    drawingPivotY = pivotY;
+    myRenderer.setDrawingScale(scale, pivotX, pivotY);
+    updateViewport();
+  }
+
+  /**
+   * Switches the way the canvas is rendered, keeping everything currently drawn.
+   *
+   * @param mode the rendering mode (either NODE_RENDERING or CANVAS_RENDERING).
+   * @throws IllegalArgumentException if the mode is not recognized.
+   */
+  public void setRenderMode(String mode) {
+    DisplayRenderer newRenderer;
+    if (mode.equals(NODE_RENDERING)) {
+      newRenderer = new NodeRenderer();
+    } else if (mode.equals(CANVAS_RENDERING)) {
+      newRenderer = new CanvasRenderer(canvas);
+    } else {
+      throw new IllegalArgumentException(mode);
+    }
+    myRenderer.clear();
+    viewportLayer.getChildren().setAll(myHistory.getLayer(), newRenderer.getLayer());
+    myRenderer = newRenderer;
+    myRenderer.setViewport(myViewport);
+    myRenderer.setDrawingScale(drawingScale, drawingPivotX, drawingPivotY);
+    myRenderer.setDetail(detailSize);
+    if (myDisplayPackage != null) {
+      for (Node n: myDisplayPackage.getElementList()) {
+        myRenderer.add(n);
+      }
+      myRenderer.syncSegments(myDisplayPackage.getSegments());
+    }
+    myRenderer.render();
+  }
+
+  /**
+   * Sets the smallest size, in pixels, that a segment is drawn at. Smaller segments are
+   * merged into the ones around them, or dropped if they cover a pixel that is already drawn.
+   *
+   * @param minSize the smallest size of a drawn segment (0 to draw every segment).
+   * @throws IllegalArgumentException if the size is negative or not a number.
+   */
+  public void setDetail(double minSize) {
+    if (!(minSize >= 0)) {
+      throw new IllegalArgumentException(String.valueOf(minSize));
+    }
+    detailSize = minSize;
+    myRenderer.setDetail(minSize);
+    myRenderer.render();
+  }
+
+  /**
+   * Limits the number of segments kept as vectors. Once a drawing has more than the limit,
+   * its oldest segments are flattened into a bitmap beneath the rest, leaving the newest
+   * half of the limit as vectors, so the memory used by the drawing stays bounded.
+   *
+   * @param limit the most segments kept as vectors (0 to keep every segment).
+   * @throws IllegalArgumentException if the limit is negative.
+   */
+  public void setHistoryLimit(int limit) {
+    if (limit < 0) {
+      throw new IllegalArgumentException(String.valueOf(limit));
+    }
+    historyLimit = limit;
+    if (myDisplayPackage != null) {
+      loadDisplayPackage(myDisplayPackage);
+    }
+  }
+
+  //Flattens the oldest segments of the buffer into the history if there are too many, and
+  //empties the history if the buffer has been replaced or cleared by its program.
+  private void syncHistory(SegmentBuffer segments) {
+    if (segments != historySegments || segments.getGeneration() != historyGeneration) {
+      myHistory.clear();
+      historySegments = segments;
+      historyGeneration = segments.getGeneration();
+    }
+    if (historyLimit > 0 && segments.size() > historyLimit) {
+      int count = segments.size() - Math.max(1, historyLimit / 2);
+      myHistory.flatten(segments, count, getDrawingViewport(), drawingScale);
+      segments.discardOldest(count);
+      historyGeneration = segments.getGeneration();
+    }
+  }
+
   /**
    * Initializes the properties, such as height, width, and fill, of the canvas
    */
@@ -134,12 +312,12 @@ public class Display {
    * @param yPos the y position of the element
    */
   public void addNode(Node element, int xPos, int yPos) {
-    if (canvasDisplay.getChildren().contains(element)) {
+    if (myRenderer.contains(element)) {
       return;
     }
     element.setLayoutX(xPos);
     element.setLayoutY(yPos);
-    canvasDisplay.getChildren().add(element);
+    myRenderer.add(element);
   }
 
   /**
@@ -149,10 +327,10 @@ public class Display {
    * @param element the element to be removed from the display
    */
   public void removeNodeFromDisplay(Node element) {
-    if (!canvasDisplay.getChildren().contains(element)) {
+    if (!myRenderer.contains(element)) {
       return;
     }
-    canvasDisplay.getChildren().remove(element);
+    myRenderer.remove(element);
   }
 
   /**
@@ -195,6 +373,26 @@ public class Display {
     alert.show();
   }
 
+  /**
+   * Shows how much of a script has been loaded, below the command line. The bar is hidden
+   * once the script is fully loaded.
+   *
+   * @param progress the fraction of the script that has been loaded, from 0 to 1.
+   */
+  public void showLoadProgress(double progress) {
+    if (loadProgress == null) {
+      loadProgress = new ProgressBar();
+      loadProgress.prefWidthProperty().bind(canvas.widthProperty());
+      loadProgress.setVisible(false);
+      loadProgress.setManaged(false);
+      bottomPanel.getChildren().add(loadProgress);
+    }
+    boolean loading = progress < 1;
+    loadProgress.setVisible(loading);
+    loadProgress.setManaged(loading);
+    loadProgress.setProgress(progress);
+  }
+
   /**
    * Adds the command line to the display
    *
@@ -286,7 +484,8 @@ public class Display {
   }
 
   /**
-   * Adds all the elements of the given display package to the scene.
+   * Shows the given display package. If it is the package already being shown, only the
+   * elements added or removed since it was last loaded are changed.
    *
    * @param p the display package to add.
    */
@@ -294,11 +493,24 @@ public class Display {
     if (p == null) {
       return;
     }
-    unloadDisplayPackage();
-    for (Node n: p.getElementList()) {
-      addNode(n, (int)n.getLayoutX(), (int)n.getLayoutY());
+    if (p != myDisplayPackage) {
+      unloadDisplayPackage();
+      for (Node n: p.getElementList()) {
+        addNode(n, (int)n.getLayoutX(), (int)n.getLayoutY());
+      }
+    } else {
+      for (Node n: p.getRemovedElements()) {
+        removeNodeFromDisplay(n);
+      }
+      for (Node n: p.getAddedElements()) {
+        addNode(n, (int)n.getLayoutX(), (int)n.getLayoutY());
+      }
     }
+    syncHistory(p.getSegments());
+    myRenderer.syncSegments(p.getSegments());
+    p.clearChanges();
     myDisplayPackage = p;
+    myRenderer.render();
   }
 
   /**
@@ -309,10 +521,11 @@ public class Display {
     if (myDisplayPackage == null) {
       return;
     }
-    for (Node n: myDisplayPackage.getElementList()) {
-      removeNodeFromDisplay(n);
-    }
+    myRenderer.clear();
+    myHistory.clear();
+    historySegments = null;
     myDisplayPackage = null;
+    myRenderer.render();
   }
 
 
@@ -0,0 +1,117 @@
+package myturtle.display;
+
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * A copy of a program's display package, for a program that runs on a thread other than
+ * the JavaFX thread. The program's thread captures what has changed in the program's
+ * package into a DisplayUpdate, and the JavaFX thread applies each update to the copy, which
+ * is the package the display shows. The two sides share nothing but the updates, so the
+ * program never touches anything the display is drawing.
+ *
+ * Once its segments have been captured, the program no longer needs them, so the program's
+ * buffer is trimmed down to its last segment whenever it holds more than TRIM_SIZE.
+ *
+ * @author William Convertino
+ */
+public class DisplayMirror {
+
+  /**The most captured segments left in the program's buffer.**/
+  public static final int TRIM_SIZE = 1 << 16;
+
+  //The program's buffer, the generation it was captured from, how many of its segments
+  //have been captured, and where the last of them ended. Only used by the program's thread.
+  private SegmentBuffer capturedSegments;
+  private int capturedGeneration;
+  private int capturedSize;
+  private float capturedEndX;
+  private float capturedEndY;
+
+  //The copy of the program's package. Only used by the JavaFX thread.
+  private DisplayPackage myCopy;
+
+  /**
+   * Constructs a mirror with an empty copy.
+   */
+  public DisplayMirror() {
+    this.myCopy = new DisplayPackage();
+  }
+
+  /**
+   * Captures everything that has changed in the program's package since the last capture,
+   * and marks the package as in sync. Called on the program's thread.
+   *
+   * @param source the program's display package, or null if nothing in it has changed.
+   * @return the changes, to be applied to the copy.
+   */
+  public DisplayUpdate capture(DisplayPackage source) {
+    DisplayUpdate update = new DisplayUpdate();
+    if (source == null) {
+      update.addedElements = Collections.emptyList();
+      update.removedElements = Collections.emptyList();
+      return update;
+    }
+    update.addedElements = new ArrayList<>(source.getAddedElements());
+    update.removedElements = new ArrayList<>(source.getRemovedElements());
+    source.clearChanges();
+
+    SegmentBuffer segments = source.getSegments();
+    if (segments != capturedSegments || segments.getGeneration() != capturedGeneration) {
+      update.cleared = true;
+      capturedSegments = segments;
+      capturedGeneration = segments.getGeneration();
+      capturedSize = 0;
+    } else if (capturedSize > 0 && (segments.getX2(capturedSize - 1) != capturedEndX
+        || segments.getY2(capturedSize - 1) != capturedEndY)) {
+      update.extendsLast = true;
+      update.lastX = segments.getX2(capturedSize - 1);
+      update.lastY = segments.getY2(capturedSize - 1);
+    }
+    if (segments.size() > capturedSize) {
+      update.newSegments = new SegmentBuffer();
+      update.newSegments.copyFrom(segments, capturedSize);
+    }
+    capturedSize = segments.size();
+    if (capturedSize > 0) {
+      capturedEndX = segments.getX2(capturedSize - 1);
+      capturedEndY = segments.getY2(capturedSize - 1);
+    }
+    if (capturedSize > TRIM_SIZE) {
+      segments.discardOldest(capturedSize - 1);
+      capturedGeneration = segments.getGeneration();
+      capturedSize = 1;
+    }
+    return update;
+  }
+
+  /**
+   * Applies an update to the copy. Called on the JavaFX thread.
+   *
+   * @param update the changes captured from the program's package.
+   */
+  public void apply(DisplayUpdate update) {
+    update.removedElements.forEach(myCopy::remove);
+    update.addedElements.forEach(myCopy::add);
+    SegmentBuffer copy = myCopy.getSegments();
+    if (update.cleared) {
+      copy.clear();
+    }
+    if (update.extendsLast && copy.size() > 0) {
+      copy.extendLast(update.lastX, update.lastY);
+    }
+    if (update.newSegments != null) {
+      copy.copyFrom(update.newSegments, 0);
+    }
+  }
+
+  /**
+   * Returns the copy of the program's package, to be shown by the display.
+   *
+   * @return the copy.
+   */
+  public DisplayPackage getPackage() {
+    return myCopy;
+  }
+
+}
@@ -1,43 +1,158 @@
 package myturtle.display;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import javafx.scene.Node;
 
 /**
  * A data structure to store a program's JavaFX elements that will
- * later be displayed on the display.
+ * later be displayed on the display. It also keeps track of the elements
+ * added and removed since it was last shown, so the display only has to
+ * apply those changes. Adding or removing an element takes constant time, however many
+ * the package holds.
  *
  * @author William Convertino
  */
 public class DisplayPackage {
 
-  LinkedList<Node> elementList;
+  //Every element in the package, with its place in the package's order. Elements added to
+  //the front get places below every other, and those added to the back places above.
+  private Map<Node, Long> elements;
+  private long firstPlace;
+  private long lastPlace;
+
+  //The segments drawn by the program.
+  private SegmentBuffer segments;
+
+  //The version of the segments when the display last synced with the package.
+  private int syncedVersion;
+
+  //The elements added and removed since the display last synced with the package.
+  private Set<Node> addedElements;
+  private Set<Node> removedElements;
 
   public DisplayPackage() {
-    this.elementList = new LinkedList<>();
+    this.elements = new IdentityHashMap<>();
+    this.addedElements = new LinkedHashSet<>();
+    this.removedElements = new LinkedHashSet<>();
+    this.segments = new SegmentBuffer();
   }
 
   /**
-   * Adds an element to the element list.
+   * Adds an element to the back of the package, unless it is already in the package.
    *
    * @param n the element to add.
    */
   public void add(Node n) {
-    elementList.add(n);
+    if (elements.putIfAbsent(n, ++lastPlace) == null) {
+      markAdded(n);
+    }
   }
 
+  /**
+   * Adds an element to the front of the package, unless it is already in the package.
+   *
+   * @param n the element to add.
+   */
   public void addFirst(Node n) {
-    elementList.addFirst(n);
+    if (elements.putIfAbsent(n, --firstPlace) == null) {
+      markAdded(n);
+    }
+  }
+
+  /**
+   * Removes an element from the package.
+   *
+   * @param n the element to remove.
+   */
+  public void remove(Node n) {
+    if (elements.remove(n) == null) {
+      return;
+    }
+    if (!addedElements.remove(n)) {
+      removedElements.add(n);
+    }
+  }
+
+  //Records that the given element was added since the last sync.
+  private void markAdded(Node n) {
+    if (!removedElements.remove(n)) {
+      addedElements.add(n);
+    }
   }
 
   /**
-   * Returns the elementList.
+   * Returns every element in the package, in order. The list is made on each call, so this
+   * is meant for showing the whole package at once.
    *
-   * @return an ArrayList of all the JavaFX items in the package.
+   * @return a list of all the JavaFX items in the package.
    */
   public List<Node> getElementList() {
-    return elementList;
+    List<Node> list = new ArrayList<>(elements.keySet());
+    list.sort((a, b) -> Long.compare(elements.get(a), elements.get(b)));
+    return Collections.unmodifiableList(list);
+  }
+
+  /**
+   * Returns the elements added since the last call to clearChanges.
+   *
+   * @return the added elements, in the order they were added.
+   */
+  public Collection<Node> getAddedElements() {
+    return addedElements;
+  }
+
+  /**
+   * Returns the elements removed since the last call to clearChanges.
+   *
+   * @return the removed elements, in the order they were removed.
+   */
+  public Collection<Node> getRemovedElements() {
+    return removedElements;
+  }
+
+  /**
+   * Sets the buffer of segments drawn by the program.
+   *
+   * @param segments the program's segments.
+   */
+  public void setSegments(SegmentBuffer segments) {
+    this.segments = segments;
+    this.syncedVersion = -1;
+  }
+
+  /**
+   * Returns the buffer of segments drawn by the program.
+   *
+   * @return the program's segments.
+   */
+  public SegmentBuffer getSegments() {
+    return segments;
+  }
+
+  /**
+   * Returns whether anything in the package has changed since the last call to clearChanges.
+   *
+   * @return true if elements were added or removed, or segments were drawn.
+   */
+  public boolean hasChanges() {
+    return !addedElements.isEmpty() || !removedElements.isEmpty()
+        || segments.getVersion() != syncedVersion;
+  }
+
+  /**
+   * Marks the package as in sync with the display, clearing the added and removed elements.
+   */
+  public void clearChanges() {
+    addedElements.clear();
+    removedElements.clear();
+    syncedVersion = segments.getVersion();
   }
 
 }
@@ -0,0 +1,122 @@
+package myturtle.display;
+
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+
+/**
+ * A rendering backend for the display's canvas. Each backend decides how the elements
+ * of a display package are turned into pixels, so the display can switch between them
+ * without the programs knowing.
+ *
+ * @author William Convertino
+ */
+public interface DisplayRenderer {
+
+  /**
+   * Returns the node that holds everything drawn by this renderer.
+   *
+   * @return the renderer's layer of the canvas.
+   */
+  Node getLayer();
+
+  /**
+   * Returns whether the given element is currently drawn by this renderer.
+   *
+   * @param element the element to check.
+   * @return true if the element is being drawn.
+   */
+  boolean contains(Node element);
+
+  /**
+   * Adds an element to be drawn.
+   *
+   * @param element the element to add.
+   */
+  void add(Node element);
+
+  /**
+   * Removes an element from the drawing.
+   *
+   * @param element the element to remove.
+   */
+  void remove(Node element);
+
+  /**
+   * Draws the segments of the given buffer that have not been drawn yet. If the buffer is
+   * not the one previously drawn, or it has been cleared since, it is drawn from the start.
+   *
+   * @param segments the buffer of segments to draw.
+   */
+  void syncSegments(SegmentBuffer segments);
+
+  /**
+   * Removes every element and segment from the drawing.
+   */
+  void clear();
+
+  /**
+   * Shows the drawing through the given viewport. Called whenever the viewport changes.
+   *
+   * @param viewport the part of the drawing to show.
+   */
+  void setViewport(Viewport viewport);
+
+  /**
+   * Scales the segments, and every element scaled with the drawing, about a point, as a
+   * program does when it shows its drawing at another size. Unlike the viewport, this leaves
+   * the width of the segments' lines as it is, and leaves elements that are not scaled with
+   * the drawing (such as turtles) where and as they are.
+   *
+   * @param scale the amount the segments are scaled by, which must be positive.
+   * @param pivotX the x coordinate to scale around.
+   * @param pivotY the y coordinate to scale around.
+   */
+  void setDrawingScale(double scale, double pivotX, double pivotY);
+
+  /**
+   * Sets the smallest size, in pixels, that a segment is drawn at. Smaller segments are
+   * merged into their neighbors or dropped, as decided by a DetailFilter.
+   *
+   * @param minSize the smallest size of a drawn segment (0 to draw every segment).
+   */
+  void setDetail(double minSize);
+
+  /**
+   * Draws any changes made since the last call. Called once per frame.
+   */
+  void render();
+
+  /**
+   * Sets whether an element is scaled with the program's drawing, as every element is
+   * unless set otherwise. An element that is not, such as a turtle, keeps its size and is
+   * placed by the program where it is shown.
+   *
+   * @param element the element to set.
+   * @param scaled whether the element is scaled with the drawing.
+   */
+  static void setScaledWithDrawing(Node element, boolean scaled) {
+    element.getProperties().put(DisplayRenderer.class, scaled);
+  }
+
+  /**
+   * Returns whether an element is scaled with the program's drawing.
+   *
+   * @param element the element to check.
+   * @return false if the element was set not to be scaled with the drawing.
+   */
+  static boolean isScaledWithDrawing(Node element) {
+    return !Boolean.FALSE.equals(element.getProperties().get(DisplayRenderer.class));
+  }
+
+  /**
+   * Converts a color stored in a segment buffer to a JavaFX color.
+   *
+   * @param argb the color as an ARGB integer.
+   * @return the equivalent JavaFX color.
+   */
+  static Color toColor(int argb) {
+    return Color.rgb((argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF,
+        ((argb >>> 24) & 0xFF) / 255.0);
+  }
+
+}
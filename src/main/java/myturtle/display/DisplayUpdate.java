@@ -0,0 +1,136 @@
+package myturtle.display;
+
+import java.util.List;
+import javafx.scene.Node;
+
+/**
+ * Everything about a program's display that changed between two frames: the elements
+ * added and removed, the segments drawn, the scale they are shown at, where its turtles
+ * are, how much of its script has been read, and any error it ran into. Updates are captured by a DisplayMirror on the
+ * thread running the program and handed to the JavaFX thread to be shown.
+ *
+ * @author William Convertino
+ */
+public class DisplayUpdate {
+
+  //The elements added to and removed from the program's package.
+  List<Node> addedElements;
+  List<Node> removedElements;
+
+  //Whether the program's segments were cleared, the new end of the last segment if it was
+  //extended, and the segments added (null if there are none).
+  boolean cleared;
+  boolean extendsLast;
+  float lastX;
+  float lastY;
+  SegmentBuffer newSegments;
+
+  //The state of each of the program's turtles: its x and y coordinates, angle, and 1 if it
+  //is shown (or 0 if it is hidden).
+  private double[] turtleStates;
+  private int turtleCount;
+
+  //The amount the program's segments are scaled by when they are shown.
+  private double drawingScale;
+
+  private double loadProgress;
+  private Exception error;
+
+  //Updates are only created by a DisplayMirror.
+  DisplayUpdate() {
+    this.loadProgress = 1;
+    this.turtleStates = new double[0];
+    this.drawingScale = 1;
+  }
+
+  /**
+   * Sets the number of turtles the program has, making room for the state of each.
+   *
+   * @param count the number of turtles.
+   */
+  public void setTurtleCount(int count) {
+    this.turtleStates = new double[count * 4];
+    this.turtleCount = count;
+  }
+
+  public int getTurtleCount() {
+    return turtleCount;
+  }
+
+  /**
+   * Records where one of the program's turtles is, so its shape can be moved there.
+   *
+   * @param i the index of the turtle.
+   * @param x the x coordinate of the turtle.
+   * @param y the y coordinate of the turtle.
+   * @param angle the angle (in degrees) of the turtle.
+   * @param visible whether the turtle is shown.
+   */
+  public void setTurtle(int i, double x, double y, double angle, boolean visible) {
+    turtleStates[i * 4] = x;
+    turtleStates[i * 4 + 1] = y;
+    turtleStates[i * 4 + 2] = angle;
+    turtleStates[i * 4 + 3] = visible ? 1 : 0;
+  }
+
+  public double getTurtleX(int i) {
+    return turtleStates[i * 4];
+  }
+
+  public double getTurtleY(int i) {
+    return turtleStates[i * 4 + 1];
+  }
+
+  public double getTurtleAngle(int i) {
+    return turtleStates[i * 4 + 2];
+  }
+
+  public boolean isTurtleVisible(int i) {
+    return turtleStates[i * 4 + 3] != 0;
+  }
+
+  /**
+   * Records the amount the program's segments are scaled by when they are shown.
+   *
+   * @param scale the scale of the program's drawing.
+   */
+  public void setDrawingScale(double scale) {
+    this.drawingScale = scale;
+  }
+
+  public double getDrawingScale() {
+    return drawingScale;
+  }
+
+  /**
+   * Records how much of the program's script has been read.
+   *
+   * @param progress the fraction of the script that has been read, from 0 to 1.
+   */
+  public void setLoadProgress(double progress) {
+    this.loadProgress = progress;
+  }
+
+  public double getLoadProgress() {
+    return loadProgress;
+  }
+
+  /**
+   * Records an error thrown by the program, to be shown to the user.
+   *
+   * @param error the error thrown.
+   */
+  public void setError(Exception error) {
+    this.error = error;
+  }
+
+  /**
+   * Returns the error thrown by the program since the last update.
+   *
+   * @return the error, or null if there was none.
+   */
+  public Exception getError() {
+    return error;
+  }
+
+}
@@ -0,0 +1,158 @@
+package myturtle.display;
+
+import javafx.scene.Node;
+import javafx.scene.SnapshotParameters;
+import javafx.scene.canvas.Canvas;
+import javafx.scene.canvas.GraphicsContext;
+import javafx.scene.image.ImageView;
+import javafx.scene.image.WritableImage;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Rectangle;
+import javafx.scene.transform.Affine;
+
+/**
+ * A bitmap of segments that are no longer kept as vectors, shown beneath the renderer. Old
+ * segments are rasterized into a single WritableImage the size of the canvas, so however
+ * long a drawing goes on, its history costs no more memory than one image.
+ *
+ * The image is drawn as the drawing was seen when it was last flattened, so parts of the
+ * history that were outside the canvas at the time are not kept, and zooming in on the
+ * history shows its pixels.
+ *
+ * @author William Convertino
+ */
+public class HistoryLayer {
+
+  //The area of the display the history covers.
+  private Rectangle myBounds;
+
+  //The image of the history, and the view that shows it.
+  private WritableImage myImage;
+  private ImageView myView;
+
+  //The canvas the history is drawn on before it is copied into the image.
+  private Canvas myCanvas;
+
+  //The viewport the image was drawn through.
+  private double imageScale;
+  private double imageX;
+  private double imageY;
+
+  //The transform that shows the image through the current viewport.
+  private Affine myTransform;
+
+  /**
+   * Constructs an empty history covering the given area.
+   *
+   * @param bounds the area of the display to cover.
+   */
+  public HistoryLayer(Rectangle bounds) {
+    this.myBounds = bounds;
+    this.myView = new ImageView();
+    myView.setMouseTransparent(true);
+    this.myTransform = new Affine();
+    myView.getTransforms().add(myTransform);
+    this.imageScale = 1;
+  }
+
+  /**
+   * Returns the node that shows the history.
+   *
+   * @return the history's layer of the canvas.
+   */
+  public Node getLayer() {
+    return myView;
+  }
+
+  /**
+   * Draws the oldest segments of a buffer into the history, on top of what it already holds.
+   * The segments should be removed from the buffer afterwards.
+   *
+   * @param segments the buffer of segments.
+   * @param count the number of segments to draw, starting from the first.
+   * @param viewport the viewport the segments are currently seen through.
+   * @param drawingScale the amount the viewport scales the segments by beyond zooming, which
+   *     the width of their lines is divided by.
+   */
+  public void flatten(SegmentBuffer segments, int count, Viewport viewport,
+      double drawingScale) {
+    int width = (int) Math.ceil(myBounds.getWidth());
+    int height = (int) Math.ceil(myBounds.getHeight());
+    if (width <= 0 || height <= 0) {
+      return;
+    }
+    if (myCanvas == null || myCanvas.getWidth() != width || myCanvas.getHeight() != height) {
+      myCanvas = new Canvas(width, height);
+    }
+    GraphicsContext gc = myCanvas.getGraphicsContext2D();
+    gc.setTransform(1, 0, 0, 1, 0, 0);
+    gc.clearRect(0, 0, width, height);
+    if (myImage != null) {
+      gc.setTransform(myTransform);
+      gc.drawImage(myImage, 0, 0);
+    }
+    gc.setTransform(viewport.getScale(), 0, 0, viewport.getScale(),
+        viewport.getTranslateX(), viewport.getTranslateY());
+    strokeSegments(gc, segments, Math.min(count, segments.size()), drawingScale);
+
+    if (myImage == null || myImage.getWidth() != width || myImage.getHeight() != height) {
+      myImage = new WritableImage(width, height);
+    }
+    SnapshotParameters parameters = new SnapshotParameters();
+    parameters.setFill(Color.TRANSPARENT);
+    myCanvas.snapshot(parameters, myImage);
+    gc.setTransform(1, 0, 0, 1, 0, 0);
+    gc.clearRect(0, 0, width, height);
+
+    imageScale = viewport.getScale();
+    imageX = viewport.getTranslateX();
+    imageY = viewport.getTranslateY();
+    myView.setImage(myImage);
+    setViewport(viewport);
+  }
+
+  //Strokes the first segments of the buffer, one path for each run of the same style.
+  private void strokeSegments(GraphicsContext gc, SegmentBuffer segments, int count,
+      double drawingScale) {
+    int currentStyle = -1;
+    for (int i = 0; i < count; i++) {
+      int style = segments.getStyle(i);
+      if (style != currentStyle) {
+        if (currentStyle >= 0) {
+          gc.stroke();
+        }
+        currentStyle = style;
+        gc.setStroke(DisplayRenderer.toColor(segments.getStyleColor(style)));
+        gc.setLineWidth(segments.getStyleWidth(style) / drawingScale);
+        gc.beginPath();
+      }
+      if (!segments.isConnected(i)) {
+        gc.moveTo(segments.getX1(i), segments.getY1(i));
+      }
+      gc.lineTo(segments.getX2(i), segments.getY2(i));
+    }
+    if (currentStyle >= 0) {
+      gc.stroke();
+    }
+  }
+
+  /**
+   * Shows the history through the given viewport.
+   *
+   * @param viewport the part of the drawing to show.
+   */
+  public void setViewport(Viewport viewport) {
+    double scale = viewport.getScale() / imageScale;
+    myTransform.setToTransform(scale, 0, viewport.getTranslateX() - imageX * scale,
+        0, scale, viewport.getTranslateY() - imageY * scale);
+  }
+
+  /**
+   * Removes everything from the history.
+   */
+  public void clear() {
+    myImage = null;
+    myView.setImage(null);
+  }
+
+}
@@ -0,0 +1,240 @@
+package myturtle.display;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import javafx.scene.Group;
+import javafx.scene.Node;
+import javafx.scene.paint.Color;
+import javafx.scene.shape.Line;
+import javafx.scene.shape.Polyline;
+import javafx.scene.transform.Affine;
+
+/**
+ * A renderer that adds every element to the scene graph as its own node, and draws segments
+ * as Polyline nodes. Each run of connected segments with the same style extends a single
+ * Polyline (up to MAX_POLYLINE_POINTS points), so a typical drawing needs only a few nodes.
+ * Lines are kept in a group beneath every other element, so the turtle is always drawn on
+ * top. The viewport is applied as a transform of the whole layer, and JavaFX itself skips
+ * the nodes that fall outside the canvas. Segments too small to be seen are left out of the
+ * polylines by a DetailFilter, whose scale is the viewport's rounded up to a power of two so
+ * that the polylines are only rebuilt when zooming changes the scale twofold. A drawing
+ * scale set by the program is a second transform of the lines and of every other element
+ * scaled with the drawing, with the width of each line divided by it. Elements that are
+ * not scaled with it, such as the turtles, are kept in a group of their own above.
+ *
+ * @author William Convertino
+ */
+public class NodeRenderer implements DisplayRenderer {
+
+  /**The most points in a single Polyline, so that extending it stays cheap to redraw.**/
+  public static final int MAX_POLYLINE_POINTS = 1024;
+
+  //The group that holds every drawn element, the group of lines and other elements scaled
+  //with the drawing, and the group of elements that are not.
+  private Group myLayer;
+  private Group myDrawing;
+  private Group myLines;
+  private Group myShapes;
+  private Group myOverlay;
+
+  //The transform that shows the layer through the viewport, and the one that scales the
+  //drawing by the drawing scale.
+  private Affine myTransform;
+  private Affine myDrawingTransform;
+
+  //Every element currently drawn.
+  private Set<Node> myElements;
+
+  //The segments being drawn, the generation they were drawn from, and how many are drawn.
+  private SegmentBuffer mySegments;
+  private int myGeneration;
+  private int drawnSegments;
+
+  //The Polyline holding the last drawn segment, which the next segments may extend.
+  private Polyline openLine;
+
+  //The filter of segments too small to see, and the scale it filters at.
+  private DetailFilter myFilter;
+  private double detailScale;
+
+  //The scale of the viewport and of the drawing.
+  private double viewportScale;
+  private double drawingScale;
+
+  /**
+   * Constructs a new renderer with an empty layer.
+   */
+  public NodeRenderer() {
+    this.myLines = new Group();
+    this.myShapes = new Group();
+    this.myDrawing = new Group(myLines, myShapes);
+    this.myOverlay = new Group();
+    this.myLayer = new Group(myDrawing, myOverlay);
+    this.myTransform = new Affine();
+    myLayer.getTransforms().add(myTransform);
+    this.myDrawingTransform = new Affine();
+    myDrawing.getTransforms().add(myDrawingTransform);
+    this.myElements = Collections.newSetFromMap(new IdentityHashMap<>());
+    this.myFilter = new DetailFilter(DetailFilter.DEFAULT_MIN_SIZE);
+    this.detailScale = 1;
+    this.viewportScale = 1;
+    this.drawingScale = 1;
+  }
+
+  @Override
+  public Node getLayer() {
+    return myLayer;
+  }
+
+  @Override
+  public boolean contains(Node element) {
+    return myElements.contains(element);
+  }
+
+  @Override
+  public void add(Node element) {
+    if (myElements.add(element)) {
+      getGroup(element).getChildren().add(element);
+    }
+  }
+
+  @Override
+  public void remove(Node element) {
+    if (myElements.remove(element)) {
+      getGroup(element).getChildren().remove(element);
+    }
+  }
+
+  //Returns the group the given element belongs in.
+  private Group getGroup(Node element) {
+    if (!DisplayRenderer.isScaledWithDrawing(element)) {
+      return myOverlay;
+    }
+    return element instanceof Line || element instanceof Polyline ? myLines : myShapes;
+  }
+
+  @Override
+  public void syncSegments(SegmentBuffer segments) {
+    if (segments != mySegments || segments.getGeneration() != myGeneration
+        || segments.size() < drawnSegments) {
+      myLines.getChildren().removeIf(n -> !myElements.contains(n));
+      mySegments = segments;
+      myGeneration = segments.getGeneration();
+      drawnSegments = 0;
+      openLine = null;
+      myFilter.reset(detailScale, 0, 0);
+    }
+    if (drawnSegments > 0) {
+      List<Double> points = openLine.getPoints();
+      points.set(points.size() - 2, (double) segments.getX2(drawnSegments - 1));
+      points.set(points.size() - 1, (double) segments.getY2(drawnSegments - 1));
+    }
+    List<Node> newLines = new ArrayList<>();
+    int currentStyle = -1;
+    Color stroke = null;
+    List<Double> openPoints = new ArrayList<>();
+    for (int i = drawnSegments; i < segments.size(); i++) {
+      int action = myFilter.check(segments, i, segments.isConnected(i), i == segments.size() - 1);
+      if (action == DetailFilter.SKIP) {
+        continue;
+      }
+      if (action == DetailFilter.CONTINUE && openLine.getPoints().size() + openPoints.size() < MAX_POLYLINE_POINTS * 2) {
+        openPoints.add((double) segments.getX2(i));
+        openPoints.add((double) segments.getY2(i));
+        continue;
+      }
+      double startX = segments.getX1(i);
+      double startY = segments.getY1(i);
+      if (openLine != null) {
+        openLine.getPoints().addAll(openPoints);
+        openPoints.clear();
+        if (action == DetailFilter.CONTINUE) {
+          //The open line is full, so the new one starts where it ends.
+          List<Double> points = openLine.getPoints();
+          startX = points.get(points.size() - 2);
+          startY = points.get(points.size() - 1);
+        }
+      }
+      if (segments.getStyle(i) != currentStyle) {
+        currentStyle = segments.getStyle(i);
+        stroke = DisplayRenderer.toColor(segments.getStyleColor(currentStyle));
+      }
+      openLine = new Polyline(startX, startY, segments.getX2(i), segments.getY2(i));
+      openLine.setStroke(stroke);
+      openLine.setStrokeWidth(segments.getStyleWidth(currentStyle) / drawingScale);
+      newLines.add(openLine);
+    }
+    if (openLine != null) {
+      openLine.getPoints().addAll(openPoints);
+    }
+    myLines.getChildren().addAll(newLines);
+    drawnSegments = segments.size();
+  }
+
+  @Override
+  public void clear() {
+    myLines.getChildren().clear();
+    myShapes.getChildren().clear();
+    myOverlay.getChildren().clear();
+    myElements.clear();
+    mySegments = null;
+    drawnSegments = 0;
+    openLine = null;
+  }
+
+  @Override
+  public void setViewport(Viewport viewport) {
+    myTransform.setToTransform(viewport.getScale(), 0, viewport.getTranslateX(),
+        0, viewport.getScale(), viewport.getTranslateY());
+    viewportScale = viewport.getScale();
+    updateDetailScale();
+  }
+
+  @Override
+  public void setDrawingScale(double scale, double pivotX, double pivotY) {
+    myDrawingTransform.setToTransform(scale, 0, pivotX * (1 - scale),
+        0, scale, pivotY * (1 - scale));
+    for (Node line : myLines.getChildren()) {
+      if (line instanceof Polyline && !myElements.contains(line)) {
+        Polyline polyline = (Polyline) line;
+        polyline.setStrokeWidth(polyline.getStrokeWidth() * drawingScale / scale);
+      }
+    }
+    drawingScale = scale;
+    updateDetailScale();
+  }
+
+  //Rebuilds the lines if the scale they are shown at has changed twofold.
+  private void updateDetailScale() {
+    double scale = viewportScale * drawingScale;
+    scale = Math.pow(2, Math.ceil(Math.log(scale) / Math.log(2)));
+    if (scale != detailScale) {
+      detailScale = scale;
+      redrawSegments();
+    }
+  }
+
+  @Override
+  public void setDetail(double minSize) {
+    myFilter.setMinSize(minSize);
+    redrawSegments();
+  }
+
+  //Rebuilds the lines of every segment drawn.
+  private void redrawSegments() {
+    if (mySegments != null) {
+      SegmentBuffer segments = mySegments;
+      mySegments = null;
+      syncSegments(segments);
+    }
+  }
+
+  @Override
+  public void render() {
+    //The scene graph draws the nodes itself.
+  }
+
+}
@@ -0,0 +1,428 @@
+package myturtle.display;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A compact, growable store of the line segments drawn by a turtle. Each segment is kept
+ * as four packed floats (x1, y1, x2, y2) and the index of its style, which is about 18
+ * bytes per segment. Segments are stored in fixed-size blocks, so the buffer grows without
+ * ever copying what it already holds. A segment that continues the last one in a straight
+ * line, with the same style, extends it rather than being added.
+ *
+ * @author William Convertino
+ */
+public class SegmentBuffer {
+
+  /**The style used when none is given: a black stroke one pixel wide.**/
+  public static final int DEFAULT_STYLE = 0;
+
+  //The largest sine of the angle between two segments that are merged as collinear.
+  private static final double COLLINEAR_TOLERANCE = 1e-6;
+
+  //The farthest apart two points can be and still be joined as one after rounding.
+  private static final double JOIN_TOLERANCE = 1e-3;
+
+  //The number of segments in each block.
+  private static final int BLOCK_BITS = 14;
+  private static final int BLOCK_SIZE = 1 << BLOCK_BITS;
+  private static final int BLOCK_MASK = BLOCK_SIZE - 1;
+
+  //The coordinates and style index of each segment, stored in blocks.
+  private List<float[]> coordBlocks;
+  private List<short[]> styleBlocks;
+
+  //The color (as ARGB) and width of each style.
+  private int[] styleColors;
+  private float[] styleWidths;
+  private int styleCount;
+
+  //The number of segments in the buffer, and the most it may hold.
+  private int size;
+  private int limit;
+
+  //The number of times the buffer has been cleared.
+  private int generation;
+
+  //The number of changes made to the buffer.
+  private int version;
+
+  /**
+   * Constructs a new, empty segment buffer with only the default style.
+   */
+  public SegmentBuffer() {
+    this.coordBlocks = new ArrayList<>();
+    this.styleBlocks = new ArrayList<>();
+    this.styleColors = new int[4];
+    this.styleWidths = new float[4];
+    this.limit = Integer.MAX_VALUE;
+    addStyle(0xFF000000, 1);
+  }
+
+  /**
+   * Sets the most segments the buffer may hold, so that a drawing cannot use more memory
+   * than it is allowed. Adding a segment past the limit throws an exception; extending the
+   * last segment does not count as adding one.
+   *
+   * @param limit the most segments the buffer may hold.
+   */
+  public void setLimit(int limit) {
+    this.limit = limit;
+  }
+
+  /**
+   * Returns the most segments the buffer may hold.
+   *
+   * @return the buffer's limit (Integer.MAX_VALUE if it has none).
+   */
+  public int getLimit() {
+    return limit;
+  }
+
+  /**
+   * Returns the index of the style with the given color and width, adding it if needed.
+   *
+   * @param argb the color of the style, as an ARGB integer.
+   * @param width the width of the stroke.
+   * @return the index of the style.
+   */
+  public int addStyle(int argb, double width) {
+    for (int i = 0; i < styleCount; i++) {
+      if (styleColors[i] == argb && styleWidths[i] == (float) width) {
+        return i;
+      }
+    }
+    if (styleCount == Short.MAX_VALUE) {
+      throw new IllegalStateException("Too many segment styles");
+    }
+    if (styleCount == styleColors.length) {
+      styleColors = Arrays.copyOf(styleColors, styleCount * 2);
+      styleWidths = Arrays.copyOf(styleWidths, styleCount * 2);
+    }
+    styleColors[styleCount] = argb;
+    styleWidths[styleCount] = (float) width;
+    return styleCount++;
+  }
+
+  /**
+   * Adds a segment to the end of the buffer, or extends the last segment if the new one
+   * continues it in the same direction with the same style.
+   *
+   * @param x1 the x coordinate of the start of the segment.
+   * @param y1 the y coordinate of the start of the segment.
+   * @param x2 the x coordinate of the end of the segment.
+   * @param y2 the y coordinate of the end of the segment.
+   * @param style the index of the segment's style.
+   */
+  public void add(double x1, double y1, double x2, double y2, int style) {
+    if (continuesLast(x1, y1, x2, y2, style)) {
+      extendLast(x2, y2);
+      return;
+    }
+    version++;
+    append(x1, y1, x2, y2, style);
+  }
+
+  /**
+   * Moves the end of the last segment, as adding a segment that continues it does.
+   *
+   * @param x2 the new x coordinate of the end of the segment.
+   * @param y2 the new y coordinate of the end of the segment.
+   */
+  public void extendLast(double x2, double y2) {
+    version++;
+    float[] coords = coordBlocks.get((size - 1) >> BLOCK_BITS);
+    int last = ((size - 1) & BLOCK_MASK) * 4;
+    coords[last + 2] = (float) x2;
+    coords[last + 3] = (float) y2;
+  }
+
+  //Adds a segment to the end of the buffer as it is.
+  private void append(double x1, double y1, double x2, double y2, int style) {
+    if (size == limit) {
+      throw new IllegalStateException("More than " + limit + " segments drawn");
+    }
+    int offset = size & BLOCK_MASK;
+    if (offset == 0 && (size >> BLOCK_BITS) == coordBlocks.size()) {
+      coordBlocks.add(new float[BLOCK_SIZE * 4]);
+      styleBlocks.add(new short[BLOCK_SIZE]);
+    }
+    float[] coords = coordBlocks.get(size >> BLOCK_BITS);
+    if (coords.length == offset * 4) {
+      coords = growLastBlock();
+    }
+    coords[offset * 4] = (float) x1;
+    coords[offset * 4 + 1] = (float) y1;
+    coords[offset * 4 + 2] = (float) x2;
+    coords[offset * 4 + 3] = (float) y2;
+    styleBlocks.get(size >> BLOCK_BITS)[offset] = (short) style;
+    size++;
+  }
+
+  //Grows the last block, which was trimmed, back to its full size.
+  private float[] growLastBlock() {
+    int last = coordBlocks.size() - 1;
+    coordBlocks.set(last, Arrays.copyOf(coordBlocks.get(last), BLOCK_SIZE * 4));
+    styleBlocks.set(last, Arrays.copyOf(styleBlocks.get(last), BLOCK_SIZE));
+    return coordBlocks.get(last);
+  }
+
+  /**
+   * Shrinks the last block of the buffer to fit the segments in it, for a buffer that is
+   * kept but rarely added to. Adding to the buffer afterwards grows the block back.
+   */
+  public void trimToSize() {
+    int offset = size & BLOCK_MASK;
+    if (offset > 0) {
+      int last = coordBlocks.size() - 1;
+      coordBlocks.set(last, Arrays.copyOf(coordBlocks.get(last), offset * 4));
+      styleBlocks.set(last, Arrays.copyOf(styleBlocks.get(last), offset));
+    }
+  }
+
+  /**
+   * Returns whether the given segment starts where the last one ends and goes on in the
+   * same direction, with the same style, so that adding it would extend the last segment.
+   *
+   * @param x1 the x coordinate of the start of the segment.
+   * @param y1 the y coordinate of the start of the segment.
+   * @param x2 the x coordinate of the end of the segment.
+   * @param y2 the y coordinate of the end of the segment.
+   * @param style the index of the segment's style.
+   * @return true if adding the segment would extend the last one.
+   */
+  public boolean continuesLast(double x1, double y1, double x2, double y2, int style) {
+    if (size == 0 || getStyle(size - 1) != style
+        || getX2(size - 1) != (float) x1 || getY2(size - 1) != (float) y1) {
+      return false;
+    }
+    double ux = getX2(size - 1) - getX1(size - 1);
+    double uy = getY2(size - 1) - getY1(size - 1);
+    double vx = x2 - x1;
+    double vy = y2 - y1;
+    double cross = ux * vy - uy * vx;
+    double dot = ux * vx + uy * vy;
+    return dot > 0 && cross * cross
+        <= COLLINEAR_TOLERANCE * COLLINEAR_TOLERANCE * (ux * ux + uy * uy) * (vx * vx + vy * vy);
+  }
+
+  /**
+   * Adds every segment of another buffer to the end of this one, keeping their styles.
+   *
+   * @param other the buffer whose segments are added.
+   */
+  public void addAll(SegmentBuffer other) {
+    int[] styleMap = addStyles(other);
+    for (int i = 0; i < other.size; i++) {
+      add(other.getX1(i), other.getY1(i), other.getX2(i), other.getY2(i),
+          styleMap[other.getStyle(i)]);
+    }
+  }
+
+  /**
+   * Adds the segments of another buffer, from the given index on, to the end of this one
+   * exactly as they are, keeping their styles. Unlike addAll, no segment is merged into the
+   * one before it, so this buffer ends up holding a copy of the other.
+   *
+   * @param other the buffer whose segments are copied.
+   * @param from the index of the first segment to copy.
+   */
+  public void copyFrom(SegmentBuffer other, int from) {
+    int[] styleMap = addStyles(other);
+    for (int i = from; i < other.size; i++) {
+      append(other.getX1(i), other.getY1(i), other.getX2(i), other.getY2(i),
+          styleMap[other.getStyle(i)]);
+    }
+    version++;
+  }
+
+  /**
+   * Adds every segment of another buffer to the end of this one, rotated about the origin
+   * and then moved, keeping their styles. The first segment is joined onto the last one if
+   * it starts where that one ends, give or take rounding, and extends it if it goes on in
+   * the same direction; the rest are added as they are.
+   *
+   * @param other the buffer whose segments are added.
+   * @param cos the cosine of the angle to rotate the segments by.
+   * @param sin the sine of the angle to rotate the segments by.
+   * @param dx the distance to move the segments along the x axis.
+   * @param dy the distance to move the segments along the y axis.
+   */
+  public void addTransformed(SegmentBuffer other, double cos, double sin, double dx, double dy) {
+    int[] styleMap = addStyles(other);
+    for (int i = 0; i < other.size; i++) {
+      double x1 = dx + other.getX1(i) * cos - other.getY1(i) * sin;
+      double y1 = dy + other.getX1(i) * sin + other.getY1(i) * cos;
+      double x2 = dx + other.getX2(i) * cos - other.getY2(i) * sin;
+      double y2 = dy + other.getX2(i) * sin + other.getY2(i) * cos;
+      if (i > 0) {
+        append(x1, y1, x2, y2, styleMap[other.getStyle(i)]);
+        continue;
+      }
+      if (size > 0 && Math.abs(x1 - getX2(size - 1)) <= JOIN_TOLERANCE
+          && Math.abs(y1 - getY2(size - 1)) <= JOIN_TOLERANCE) {
+        x1 = getX2(size - 1);
+        y1 = getY2(size - 1);
+      }
+      add(x1, y1, x2, y2, styleMap[other.getStyle(i)]);
+    }
+    version++;
+  }
+
+  //Adds each style of another buffer to this one, returning the index each has here.
+  private int[] addStyles(SegmentBuffer other) {
+    int[] styleMap = new int[other.styleCount];
+    for (int i = 0; i < other.styleCount; i++) {
+      styleMap[i] = addStyle(other.styleColors[i], other.styleWidths[i]);
+    }
+    return styleMap;
+  }
+
+  /**
+   * Removes the oldest segments from the buffer, keeping the rest in order. Since every
+   * remaining segment moves to a new index, this counts as clearing the buffer.
+   *
+   * @param count the number of segments to remove.
+   */
+  public void discardOldest(int count) {
+    List<float[]> oldCoords = coordBlocks;
+    List<short[]> oldStyles = styleBlocks;
+    int oldSize = size;
+    coordBlocks = new ArrayList<>();
+    styleBlocks = new ArrayList<>();
+    size = 0;
+    for (int i = Math.min(count, oldSize); i < oldSize; i++) {
+      float[] coords = oldCoords.get(i >> BLOCK_BITS);
+      int offset = (i & BLOCK_MASK) * 4;
+      append(coords[offset], coords[offset + 1], coords[offset + 2], coords[offset + 3],
+          oldStyles.get(i >> BLOCK_BITS)[i & BLOCK_MASK]);
+    }
+    generation++;
+    version++;
+  }
+
+  /**
+   * Removes every segment from the buffer. The styles are kept.
+   */
+  public void clear() {
+    coordBlocks.clear();
+    styleBlocks.clear();
+    size = 0;
+    generation++;
+    version++;
+  }
+
+  /**
+   * Returns the number of segments in the buffer.
+   *
+   * @return the number of segments.
+   */
+  public int size() {
+    return size;
+  }
+
+  /**
+   * Returns the number of times the buffer has been cleared. Readers can compare it to
+   * a previous value to find out whether segments they have read are gone.
+   *
+   * @return the generation of the buffer.
+   */
+  public int getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Returns the number of changes made to the buffer. Since the last segment can grow
+   * without the size changing, readers compare it to a previous value to find out whether
+   * anything was drawn.
+   *
+   * @return the version of the buffer.
+   */
+  public int getVersion() {
+    return version;
+  }
+
+  /**
+   * Returns the x coordinate of the start of a segment.
+   *
+   * @param i the index of the segment.
+   * @return the x coordinate of the start.
+   */
+  public float getX1(int i) {
+    return coordBlocks.get(i >> BLOCK_BITS)[(i & BLOCK_MASK) * 4];
+  }
+
+  /**
+   * Returns the y coordinate of the start of a segment.
+   *
+   * @param i the index of the segment.
+   * @return the y coordinate of the start.
+   */
+  public float getY1(int i) {
+    return coordBlocks.get(i >> BLOCK_BITS)[(i & BLOCK_MASK) * 4 + 1];
+  }
+
+  /**
+   * Returns the x coordinate of the end of a segment.
+   *
+   * @param i the index of the segment.
+   * @return the x coordinate of the end.
+   */
+  public float getX2(int i) {
+    return coordBlocks.get(i >> BLOCK_BITS)[(i & BLOCK_MASK) * 4 + 2];
+  }
+
+  /**
+   * Returns the y coordinate of the end of a segment.
+   *
+   * @param i the index of the segment.
+   * @return the y coordinate of the end.
+   */
+  public float getY2(int i) {
+    return coordBlocks.get(i >> BLOCK_BITS)[(i & BLOCK_MASK) * 4 + 3];
+  }
+
+  /**
+   * Returns whether a segment starts where the one before it ends, with the same style, so
+   * that the two can be drawn as one connected line.
+   *
+   * @param i the index of the segment.
+   * @return true if the segment continues the one before it.
+   */
+  public boolean isConnected(int i) {
+    return i > 0 && getStyle(i) == getStyle(i - 1)
+        && getX1(i) == getX2(i - 1) && getY1(i) == getY2(i - 1);
+  }
+
+  /**
+   * Returns the style index of a segment.
+   *
+   * @param i the index of the segment.
+   * @return the index of its style.
+   */
+  public int getStyle(int i) {
+    return styleBlocks.get(i >> BLOCK_BITS)[i & BLOCK_MASK];
+  }
+
+  /**
+   * Returns the color of a style.
+   *
+   * @param style the index of the style.
+   * @return the color of the style, as an ARGB integer.
+   */
+  public int getStyleColor(int style) {
+    return styleColors[style];
+  }
+
+  /**
+   * Returns the stroke width of a style.
+   *
+   * @param style the index of the style.
+   * @return the width of the style's stroke.
+   */
+  public double getStyleWidth(int style) {
+    return styleWidths[style];
+  }
+
+}
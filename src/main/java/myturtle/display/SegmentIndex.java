@@ -0,0 +1,273 @@
+package myturtle.display;
+
+import java.util.Arrays;
+
+/**
+ * A quadtree over the segments of a segment buffer, used to find the segments that can be
+ * seen in a region without looking at every segment. Each segment is kept in the smallest
+ * node whose square holds its whole bounding box, and a node is split into four once it
+ * holds more than NODE_CAPACITY segments. The tree grows outward whenever a segment lands
+ * outside of it, so a drawing can go on in any direction.
+ *
+ * Segments are indexed when the index is next queried, so drawing costs nothing until the
+ * drawing is navigated. The last segment of the buffer is never indexed, since it may still
+ * be extended, and is instead checked on its own.
+ *
+ * @author William Convertino
+ */
+public class SegmentIndex {
+
+  /**The most segments a node holds before it is split.**/
+  public static final int NODE_CAPACITY = 64;
+
+  //The smallest half-width of a node that can be split, and of the first root node.
+  private static final double MIN_SPLIT_SIZE = 1.0 / 64;
+  private static final double MIN_ROOT_SIZE = 256;
+
+  //The buffer being indexed, the generation it was indexed from, and how much is indexed.
+  private SegmentBuffer mySegments;
+  private int myGeneration;
+  private int indexedSegments;
+
+  private Node root;
+
+  //The indices found by the current query.
+  private int[] myResults;
+  private int resultCount;
+
+  /**
+   * Constructs a new, empty index.
+   */
+  public SegmentIndex() {
+    this.myResults = new int[NODE_CAPACITY];
+  }
+
+  /**
+   * Returns the indices of the segments whose bounding boxes meet the given region, in the
+   * order they were drawn. Any segments added to the buffer since the last query are
+   * indexed first, and the index is rebuilt if the buffer is not the one last queried or
+   * it has been cleared since.
+   *
+   * @param segments the buffer of segments to search.
+   * @param minX the left edge of the region.
+   * @param minY the top edge of the region.
+   * @param maxX the right edge of the region.
+   * @param maxY the bottom edge of the region.
+   * @return the indices of the segments in the region, in increasing order.
+   */
+  public int[] query(SegmentBuffer segments, double minX, double minY, double maxX, double maxY) {
+    update(segments);
+    resultCount = 0;
+    if (root != null) {
+      collect(root, minX, minY, maxX, maxY);
+    }
+    for (int i = indexedSegments; i < segments.size(); i++) {
+      if (meets(i, minX, minY, maxX, maxY)) {
+        addResult(i);
+      }
+    }
+    Arrays.sort(myResults, 0, resultCount);
+    return Arrays.copyOf(myResults, resultCount);
+  }
+
+  //Indexes every segment of the buffer but the last, starting over if needed.
+  private void update(SegmentBuffer segments) {
+    if (segments != mySegments || segments.getGeneration() != myGeneration
+        || segments.size() < indexedSegments) {
+      mySegments = segments;
+      myGeneration = segments.getGeneration();
+      indexedSegments = 0;
+      root = null;
+    }
+    for (; indexedSegments < segments.size() - 1; indexedSegments++) {
+      insert(indexedSegments);
+    }
+  }
+
+  //Adds a segment to the smallest node that holds it, growing the tree if needed.
+  private void insert(int i) {
+    double minX = Math.min(mySegments.getX1(i), mySegments.getX2(i));
+    double minY = Math.min(mySegments.getY1(i), mySegments.getY2(i));
+    double maxX = Math.max(mySegments.getX1(i), mySegments.getX2(i));
+    double maxY = Math.max(mySegments.getY1(i), mySegments.getY2(i));
+    if (root == null) {
+      root = new Node((minX + maxX) / 2, (minY + maxY) / 2,
+          Math.max(MIN_ROOT_SIZE, Math.max(maxX - minX, maxY - minY)));
+    }
+    while (!root.holds(minX, minY, maxX, maxY)) {
+      grow((minX + maxX) / 2, (minY + maxY) / 2);
+    }
+    Node node = root;
+    while (node.children != null) {
+      int quadrant = node.findQuadrant(minX, minY, maxX, maxY);
+      if (quadrant < 0) {
+        break;
+      }
+      node = node.children[quadrant];
+    }
+    node.add(i);
+    if (node.children == null && node.count > NODE_CAPACITY && node.half > MIN_SPLIT_SIZE) {
+      split(node);
+    }
+  }
+
+  //Replaces the root with one twice its size that reaches toward the given point.
+  private void grow(double towardX, double towardY) {
+    boolean east = towardX >= root.centerX;
+    boolean south = towardY >= root.centerY;
+    Node newRoot = new Node(root.centerX + (east ? root.half : -root.half),
+        root.centerY + (south ? root.half : -root.half), root.half * 2);
+    newRoot.createChildren();
+    newRoot.children[(east ? 0 : 1) + (south ? 0 : 2)] = root;
+    root = newRoot;
+  }
+
+  //Splits a node into four, moving each of its segments that fits in a quadrant down.
+  private void split(Node node) {
+    node.createChildren();
+    int kept = 0;
+    for (int k = 0; k < node.count; k++) {
+      int i = node.items[k];
+      int quadrant = node.findQuadrant(
+          Math.min(mySegments.getX1(i), mySegments.getX2(i)),
+          Math.min(mySegments.getY1(i), mySegments.getY2(i)),
+          Math.max(mySegments.getX1(i), mySegments.getX2(i)),
+          Math.max(mySegments.getY1(i), mySegments.getY2(i)));
+      if (quadrant < 0) {
+        node.items[kept++] = i;
+      } else {
+        node.children[quadrant].add(i);
+      }
+    }
+    node.count = kept;
+    for (Node child : node.children) {
+      if (child.count > NODE_CAPACITY && child.half > MIN_SPLIT_SIZE) {
+        split(child);
+      }
+    }
+  }
+
+  //Adds every segment of a node and its descendants that meets the region to the results.
+  private void collect(Node node, double minX, double minY, double maxX, double maxY) {
+    if (!node.meets(minX, minY, maxX, maxY)) {
+      return;
+    }
+    if (node.isWithin(minX, minY, maxX, maxY)) {
+      collectAll(node);
+      return;
+    }
+    for (int k = 0; k < node.count; k++) {
+      if (meets(node.items[k], minX, minY, maxX, maxY)) {
+        addResult(node.items[k]);
+      }
+    }
+    if (node.children != null) {
+      for (Node child : node.children) {
+        collect(child, minX, minY, maxX, maxY);
+      }
+    }
+  }
+
+  //Adds every segment of a node and its descendants to the results.
+  private void collectAll(Node node) {
+    for (int k = 0; k < node.count; k++) {
+      addResult(node.items[k]);
+    }
+    if (node.children != null) {
+      for (Node child : node.children) {
+        collectAll(child);
+      }
+    }
+  }
+
+  private void addResult(int i) {
+    if (resultCount == myResults.length) {
+      myResults = Arrays.copyOf(myResults, resultCount * 2);
+    }
+    myResults[resultCount++] = i;
+  }
+
+  //Returns whether the bounding box of a segment meets the given region.
+  private boolean meets(int i, double minX, double minY, double maxX, double maxY) {
+    float x1 = mySegments.getX1(i);
+    float y1 = mySegments.getY1(i);
+    float x2 = mySegments.getX2(i);
+    float y2 = mySegments.getY2(i);
+    return Math.max(x1, x2) >= minX && Math.min(x1, x2) <= maxX
+        && Math.max(y1, y2) >= minY && Math.min(y1, y2) <= maxY;
+  }
+
+  //A square of the quadtree, holding the segments that fit in it but in none of its
+  //quadrants.
+  private static class Node {
+
+    private final double centerX;
+    private final double centerY;
+    private final double half;
+
+    private int[] items;
+    private int count;
+
+    //The quadrants of the node (northwest, northeast, southwest, southeast), or null if the
+    //node has not been split.
+    private Node[] children;
+
+    private Node(double centerX, double centerY, double half) {
+      this.centerX = centerX;
+      this.centerY = centerY;
+      this.half = half;
+      this.items = new int[4];
+    }
+
+    private void add(int i) {
+      if (count == items.length) {
+        items = Arrays.copyOf(items, count * 2);
+      }
+      items[count++] = i;
+    }
+
+    private void createChildren() {
+      double quarter = half / 2;
+      children = new Node[] {
+          new Node(centerX - quarter, centerY - quarter, quarter),
+          new Node(centerX + quarter, centerY - quarter, quarter),
+          new Node(centerX - quarter, centerY + quarter, quarter),
+          new Node(centerX + quarter, centerY + quarter, quarter)};
+    }
+
+    //Returns the quadrant that holds the whole box, or -1 if it crosses the center lines.
+    private int findQuadrant(double minX, double minY, double maxX, double maxY) {
+      int quadrant;
+      if (maxX <= centerX) {
+        quadrant = 0;
+      } else if (minX >= centerX) {
+        quadrant = 1;
+      } else {
+        return -1;
+      }
+      if (maxY <= centerY) {
+        return quadrant;
+      } else if (minY >= centerY) {
+        return quadrant + 2;
+      }
+      return -1;
+    }
+
+    private boolean holds(double minX, double minY, double maxX, double maxY) {
+      return minX >= centerX - half && maxX <= centerX + half
+          && minY >= centerY - half && maxY <= centerY + half;
+    }
+
+    private boolean meets(double minX, double minY, double maxX, double maxY) {
+      return centerX + half >= minX && centerX - half <= maxX
+          && centerY + half >= minY && centerY - half <= maxY;
+    }
+
+    private boolean isWithin(double minX, double minY, double maxX, double maxY) {
+      return centerX - half >= minX && centerX + half <= maxX
+          && centerY - half >= minY && centerY + half <= maxY;
+    }
+
+  }
+
+}
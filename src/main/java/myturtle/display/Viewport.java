@@ -0,0 +1,113 @@
+package myturtle.display;
+
+/**
+ * The part of the drawing shown on the canvas, given by a scale and a translation. A point
+ * of the drawing at (x, y) is shown at (x * scale + translateX, y * scale + translateY).
+ *
+ * @author William Convertino
+ */
+public class Viewport {
+
+  /**The farthest the viewport can be zoomed out and in.**/
+  public static final double MIN_SCALE = 1e-4;
+  public static final double MAX_SCALE = 1e4;
+
+  private double scale;
+  private double translateX;
+  private double translateY;
+
+  /**
+   * Constructs a viewport that shows the drawing as it is.
+   */
+  public Viewport() {
+    reset();
+  }
+
+  //Constructs a viewport with the given scale and translation.
+  private Viewport(double scale, double translateX, double translateY) {
+    this.scale = scale;
+    this.translateX = translateX;
+    this.translateY = translateY;
+  }
+
+  /**
+   * Returns a viewport that shows a drawing scaled about a point as this one shows the
+   * drawing itself. The point stays where this viewport shows it.
+   *
+   * @param factor the amount the drawing is scaled by.
+   * @param pivotX the x coordinate of the drawing to scale around.
+   * @param pivotY the y coordinate of the drawing to scale around.
+   * @return the viewport of the scaled drawing.
+   */
+  public Viewport scaledAbout(double factor, double pivotX, double pivotY) {
+    return new Viewport(scale * factor, translateX + scale * pivotX * (1 - factor),
+        translateY + scale * pivotY * (1 - factor));
+  }
+
+  /**
+   * Zooms the viewport in or out, keeping the point under the pivot where it is.
+   *
+   * @param factor the amount to multiply the scale by.
+   * @param pivotX the x coordinate on the canvas to zoom around.
+   * @param pivotY the y coordinate on the canvas to zoom around.
+   */
+  public void zoom(double factor, double pivotX, double pivotY) {
+    double newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+    translateX = pivotX - (pivotX - translateX) * newScale / scale;
+    translateY = pivotY - (pivotY - translateY) * newScale / scale;
+    scale = newScale;
+  }
+
+  /**
+   * Moves the viewport by the given distance on the canvas.
+   *
+   * @param dx the distance to move the drawing right.
+   * @param dy the distance to move the drawing down.
+   */
+  public void pan(double dx, double dy) {
+    translateX += dx;
+    translateY += dy;
+  }
+
+  /**
+   * Returns the viewport to showing the drawing as it is.
+   */
+  public void reset() {
+    scale = 1;
+    translateX = 0;
+    translateY = 0;
+  }
+
+  /**
+   * Returns the x coordinate of the drawing shown at the given x coordinate of the canvas.
+   *
+   * @param canvasX the x coordinate on the canvas.
+   * @return the x coordinate in the drawing.
+   */
+  public double toDrawingX(double canvasX) {
+    return (canvasX - translateX) / scale;
+  }
+
+  /**
+   * Returns the y coordinate of the drawing shown at the given y coordinate of the canvas.
+   *
+   * @param canvasY the y coordinate on the canvas.
+   * @return the y coordinate in the drawing.
+   */
+  public double toDrawingY(double canvasY) {
+    return (canvasY - translateY) / scale;
+  }
+
+  public double getScale() {
+    return scale;
+  }
+
+  public double getTranslateX() {
+    return translateX;
+  }
+
+  public double getTranslateY() {
+    return translateY;
+  }
+
+}
@@ -0,0 +1,154 @@
+package myturtle.io;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.geom.Line2D;
+import java.awt.image.BufferedImage;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import javax.imageio.ImageIO;
+import myturtle.display.SegmentBuffer;
+
+/**
+ * Writes a turtle's drawing to an image file without using JavaFX, so drawings can be
+ * saved on machines with no display. The image is cropped to the drawing, with a margin
+ * around it, and can be saved as a PNG or an SVG.
+ *
+ * @author William Convertino
+ */
+public class DrawingWriter {
+
+  /**The space (in pixels) left around the drawing.**/
+  public static final int MARGIN = 10;
+
+  /**The largest width or height (in pixels) of a PNG image.**/
+  public static final int MAX_IMAGE_SIZE = 8192;
+
+  //The segments to write and the bounds of the drawing.
+  private SegmentBuffer mySegments;
+  private double minX;
+  private double minY;
+  private double maxX;
+  private double maxY;
+
+  /**
+   * Constructs a new writer for the given segments.
+   *
+   * @param segments the segments of the drawing.
+   */
+  public DrawingWriter(SegmentBuffer segments) {
+    this.mySegments = segments;
+    findBounds();
+  }
+
+  //Finds the bounding box of every segment.
+  private void findBounds() {
+    minX = Double.POSITIVE_INFINITY;
+    minY = Double.POSITIVE_INFINITY;
+    maxX = Double.NEGATIVE_INFINITY;
+    maxY = Double.NEGATIVE_INFINITY;
+    for (int i = 0; i < mySegments.size(); i++) {
+      minX = Math.min(minX, Math.min(mySegments.getX1(i), mySegments.getX2(i)));
+      minY = Math.min(minY, Math.min(mySegments.getY1(i), mySegments.getY2(i)));
+      maxX = Math.max(maxX, Math.max(mySegments.getX1(i), mySegments.getX2(i)));
+      maxY = Math.max(maxY, Math.max(mySegments.getY1(i), mySegments.getY2(i)));
+    }
+    if (mySegments.size() == 0) {
+      minX = minY = maxX = maxY = 0;
+    }
+  }
+
+  /**
+   * Writes the drawing to the given file, as an SVG if its name ends in ".svg" and as a
+   * PNG otherwise.
+   *
+   * @param file the file to write.
+   * @throws IOException if the file could not be written.
+   */
+  public void write(Path file) throws IOException {
+    if (file.toString().toLowerCase(Locale.ROOT).endsWith(".svg")) {
+      writeSvg(file);
+    } else {
+      writePng(file);
+    }
+  }
+
+  /**
+   * Writes the drawing to the given file as a PNG image. Drawings larger than
+   * MAX_IMAGE_SIZE are scaled down to fit.
+   *
+   * @param file the file to write.
+   * @throws IOException if the file could not be written.
+   */
+  public void writePng(Path file) throws IOException {
+    double scale = Math.min(1, (MAX_IMAGE_SIZE - 2 * MARGIN) / Math.max(1, Math.max(maxX - minX, maxY - minY)));
+    int width = (int) Math.ceil((maxX - minX) * scale) + 2 * MARGIN;
+    int height = (int) Math.ceil((maxY - minY) * scale) + 2 * MARGIN;
+    BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+    Graphics2D g = image.createGraphics();
+    g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+    g.setColor(Color.WHITE);
+    g.fillRect(0, 0, width, height);
+    int currentStyle = -1;
+    Line2D.Double line = new Line2D.Double();
+    for (int i = 0; i < mySegments.size(); i++) {
+      int style = mySegments.getStyle(i);
+      if (style != currentStyle) {
+        currentStyle = style;
+        g.setColor(new Color(mySegments.getStyleColor(style), true));
+        g.setStroke(new BasicStroke((float) mySegments.getStyleWidth(style)));
+      }
+      line.setLine(MARGIN + (mySegments.getX1(i) - minX) * scale, MARGIN + (mySegments.getY1(i) - minY) * scale,
+          MARGIN + (mySegments.getX2(i) - minX) * scale, MARGIN + (mySegments.getY2(i) - minY) * scale);
+      g.draw(line);
+    }
+    g.dispose();
+    ImageIO.write(image, "png", file.toFile());
+  }
+
+  /**
+   * Writes the drawing to the given file as an SVG image, with one path per style.
+   *
+   * @param file the file to write.
+   * @throws IOException if the file could not be written.
+   */
+  public void writeSvg(Path file) throws IOException {
+    double width = maxX - minX + 2 * MARGIN;
+    double height = maxY - minY + 2 * MARGIN;
+    try (BufferedWriter out = Files.newBufferedWriter(file)) {
+      out.write(String.format(Locale.ROOT,
+          "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\"%.0f\" height=\"%.0f\" viewBox=\"%.2f %.2f %.2f %.2f\">%n",
+          width, height, minX - MARGIN, minY - MARGIN, width, height));
+      out.write(String.format(Locale.ROOT,
+          "<rect x=\"%.2f\" y=\"%.2f\" width=\"100%%\" height=\"100%%\" fill=\"white\"/>%n", minX - MARGIN, minY - MARGIN));
+      int currentStyle = -1;
+      for (int i = 0; i < mySegments.size(); i++) {
+        int style = mySegments.getStyle(i);
+        if (style != currentStyle) {
+          if (currentStyle >= 0) {
+            out.write("\"/>\n");
+          }
+          currentStyle = style;
+          int argb = mySegments.getStyleColor(style);
+          out.write(String.format(Locale.ROOT,
+              "<path fill=\"none\" stroke=\"#%06x\" stroke-opacity=\"%.3f\" stroke-width=\"%.2f\" d=\"",
+              argb & 0xFFFFFF, ((argb >>> 24) & 0xFF) / 255.0, mySegments.getStyleWidth(style)));
+        }
+        if (!mySegments.isConnected(i)) {
+          out.write(String.format(Locale.ROOT, "M%.2f %.2f", mySegments.getX1(i), mySegments.getY1(i)));
+        }
+        out.write(String.format(Locale.ROOT, "L%.2f %.2f", mySegments.getX2(i), mySegments.getY2(i)));
+      }
+      if (currentStyle >= 0) {
+        out.write("\"/>\n");
+      }
+      out.write("</svg>\n");
+    }
+  }
+
+}
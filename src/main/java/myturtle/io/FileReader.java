@@ -1,11 +1,13 @@
 package myturtle.io;
 
 import java.io.BufferedReader;
+import java.io.Closeable;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.nio.file.FileSystems;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
@@ -13,14 +15,18 @@ import myturtle.commands.Command;
 
 /**
  *  A file reading class that is capable of reading program data
- *  files and returning them as a list of commands.
+ *  files and returning them as a list of commands. The file stays
+ *  open until the reader is closed.
  *
  * @author William Convertino
  * @author Luke Josephy
  */
 
 
-public class FileReader {
+public class FileReader implements Closeable {
+
+  /**Script files on disk at least this large (4 MB) are streamed rather than read at once.**/
+  public static final long STREAMING_THRESHOLD = 1L << 22;
 
   private Path path = FileSystems.getDefault().getPath("data");
   private String pathname = path.toString();
@@ -28,10 +34,12 @@ public class FileReader {
   private BufferedReader myFileReader;
 
   /**
-   *  Constructs a new FileReader from a given file name. If the
-   *  file can not be found, it throws a FileNotFoundException.
+   *  Constructs a new FileReader from a given file name. The file is first looked
+   *  up as a resource, and then on the file system. If the file can not be found,
+   *  it throws a FileNotFoundException.
    *
-   * @param fileName the name of the file to be read (must be located within the data folder)
+   * @param fileName the name of the file to be read (must be located within the data folder,
+   *                 or be a path on the file system)
    * @throws FileNotFoundException if the specified filename cannot be found.
    */
 
@@ -40,12 +48,45 @@ public class FileReader {
     InputStream is = getClass().getResourceAsStream("/" + fileName);
     if (is != null) {
       myFileReader = new BufferedReader(new InputStreamReader(is));
+    } else if (Files.isRegularFile(Path.of(fileName))) {
+      myFileReader = new BufferedReader(new java.io.FileReader(fileName));
     } else {
       throw new FileNotFoundException();
     }
 
   }
 
+  /**
+   * Returns the modification time of the file with the given name, found the same way
+   * as when it is read.
+   *
+   * @param fileName the name of the file.
+   * @return the modification time of the file in milliseconds, or 0 for a resource.
+   * @throws IOException if the file can not be found.
+   */
+  public static long getLastModified(String fileName) throws IOException {
+    if (FileReader.class.getResource("/" + fileName) != null) {
+      return 0;
+    } else if (Files.isRegularFile(Path.of(fileName))) {
+      return Files.getLastModifiedTime(Path.of(fileName)).toMillis();
+    }
+    throw new FileNotFoundException();
+  }
+
+  /**
+   * Returns whether the file with the given name is a file on disk large enough that it
+   * should be read as a ScriptStream rather than all at once.
+   *
+   * @param fileName the name of the file.
+   * @return true if the file should be streamed.
+   * @throws IOException if the size of the file can not be read.
+   */
+  public static boolean shouldStream(String fileName) throws IOException {
+    return FileReader.class.getResource("/" + fileName) == null
+        && Files.isRegularFile(Path.of(fileName))
+        && Files.size(Path.of(fileName)) >= STREAMING_THRESHOLD;
+  }
+
   /**
    * Returns an arraylist of all the commands in the FileReader's file.
    *
@@ -65,4 +106,14 @@ public class FileReader {
     return(myCommands);
   }
 
+  /**
+   * Closes the file being read.
+   *
+   * @throws IOException if the file could not be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    myFileReader.close();
+  }
+
 }
@@ -0,0 +1,159 @@
+package myturtle.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import myturtle.commands.Command;
+
+/**
+ * Reads the commands of a large script file on a background thread. Commands are parsed
+ * into a bounded queue that the program drains as it runs, so the script starts running as
+ * soon as its first commands are read, and the reader waits whenever the program falls too
+ * far behind.
+ *
+ * @author William Convertino
+ */
+public class ScriptLoader implements Closeable {
+
+  /**The most commands that are read ahead of the program.**/
+  public static final int QUEUE_CAPACITY = 4096;
+
+  //The number of commands read between updates of the progress.
+  private static final int PROGRESS_INTERVAL = 1024;
+
+  //The command placed in the queue after the last command of the script.
+  private static final Command END_OF_SCRIPT = new Command(null);
+
+  //The commands that have been read, but not yet taken by the program.
+  private BlockingQueue<Command> myQueue;
+
+  //The thread reading the script, and the script it is reading.
+  private Thread myThread;
+  private ScriptStream myStream;
+
+  //The fraction of the script that has been read, and any error that stopped reading it.
+  private volatile double progress;
+  private volatile IOException myError;
+
+  //Signals whether the last command of the script has been taken.
+  private boolean finished;
+
+  /**
+   * Opens a script file and starts reading it in the background.
+   *
+   * @param file the path of the script file.
+   * @throws IOException if the file can not be opened.
+   */
+  public ScriptLoader(Path file) throws IOException {
+    this.myQueue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    this.myStream = new ScriptStream(file);
+    this.myThread = new Thread(this::readScript, "script-loader");
+    myThread.setDaemon(true);
+    myThread.start();
+  }
+
+  //Reads every command of the script into the queue, waiting whenever it is full.
+  private void readScript() {
+    try {
+      int count = 0;
+      while (myStream.hasNext()) {
+        myQueue.put(myStream.next());
+        if (++count % PROGRESS_INTERVAL == 0) {
+          progress = myStream.getProgress();
+        }
+      }
+    } catch (UncheckedIOException e) {
+      myError = e.getCause();
+    } catch (InterruptedException e) {
+      return;
+    }
+    progress = 1;
+    try {
+      myQueue.put(END_OF_SCRIPT);
+    } catch (InterruptedException e) {
+      return;
+    }
+  }
+
+  /**
+   * Returns the next command of the script if it has been read, without waiting for it.
+   *
+   * @return the next command, or null if it has not been read yet or the script is over.
+   * @throws IOException if the script could not be read.
+   */
+  public Command poll() throws IOException {
+    if (finished) {
+      return null;
+    }
+    return checkNext(myQueue.poll());
+  }
+
+  /**
+   * Returns the next command of the script, waiting for it to be read if needed.
+   *
+   * @return the next command, or null if the script is over.
+   * @throws IOException if the script could not be read.
+   */
+  public Command take() throws IOException {
+    if (finished) {
+      return null;
+    }
+    try {
+      return checkNext(myQueue.take());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return null;
+    }
+  }
+
+  //Checks whether a command taken from the queue is the end of the script.
+  private Command checkNext(Command next) throws IOException {
+    if (next == END_OF_SCRIPT) {
+      finished = true;
+      if (myError != null) {
+        throw myError;
+      }
+      return null;
+    }
+    return next;
+  }
+
+  /**
+   * Returns whether every command of the script has been taken. A script that could not
+   * be read is only over once the error has been thrown by poll or take.
+   *
+   * @return true if the script is over.
+   */
+  public boolean isFinished() {
+    return finished || (myQueue.peek() == END_OF_SCRIPT && myError == null);
+  }
+
+  /**
+   * Returns how much of the script has been read.
+   *
+   * @return the fraction of the script that has been read, from 0 to 1.
+   */
+  public double getProgress() {
+    return progress;
+  }
+
+  /**
+   * Stops reading the script and closes its file.
+   *
+   * @throws IOException if the file could not be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    myThread.interrupt();
+    try {
+      myThread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    myStream.close();
+  }
+
+}
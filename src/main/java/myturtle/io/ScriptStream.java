@@ -0,0 +1,163 @@
+package myturtle.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import myturtle.commands.Command;
+
+/**
+ * Reads the commands of a script file on disk one at a time, as they are needed. The file
+ * is memory-mapped a window at a time and its lines are scanned directly from the mapped
+ * bytes, so the memory used stays the same no matter how large the script is, and the
+ * first command is available as soon as the file is opened.
+ *
+ * @author William Convertino
+ */
+public class ScriptStream implements Iterator<Command>, Closeable {
+
+  //The number of bytes of the file that are mapped at once.
+  private static final long WINDOW_SIZE = 1L << 26;
+
+  //The file being read, and its size.
+  private FileChannel myChannel;
+  private long fileSize;
+
+  //The mapped window of the file, and where it starts in the file.
+  private MappedByteBuffer myWindow;
+  private long windowStart;
+
+  //The bytes of the line being read.
+  private byte[] myLine;
+
+  //The next command to return (null if it has not been read yet).
+  private Command nextCommand;
+
+  /**
+   * Opens a script file to be read as a stream of commands.
+   *
+   * @param file the path of the script file.
+   * @throws IOException if the file can not be opened.
+   */
+  public ScriptStream(Path file) throws IOException {
+    this.myChannel = FileChannel.open(file, StandardOpenOption.READ);
+    this.fileSize = myChannel.size();
+    this.myLine = new byte[256];
+    mapWindow(0);
+  }
+
+  //Maps the window of the file starting at the given position.
+  private void mapWindow(long start) throws IOException {
+    this.windowStart = start;
+    this.myWindow = myChannel.map(FileChannel.MapMode.READ_ONLY, start,
+        Math.min(WINDOW_SIZE, fileSize - start));
+  }
+
+  //Reads the next line of the file into the line buffer, returning its length (or -1 at the
+  //end of the file). The line ending is not included.
+  private int readLine() throws IOException {
+    if (windowStart + myWindow.position() >= fileSize) {
+      return -1;
+    }
+    int length = 0;
+    while (true) {
+      if (!myWindow.hasRemaining()) {
+        if (windowStart + myWindow.position() >= fileSize) {
+          break;
+        }
+        mapWindow(windowStart + myWindow.position());
+      }
+      byte b = myWindow.get();
+      if (b == '\n') {
+        break;
+      }
+      if (length == myLine.length) {
+        myLine = Arrays.copyOf(myLine, length * 2);
+      }
+      myLine[length++] = b;
+    }
+    if (length > 0 && myLine[length - 1] == '\r') {
+      length--;
+    }
+    return length;
+  }
+
+  //Reads lines until one holds a command, returning null at the end of the file.
+  private Command readCommand() throws IOException {
+    int length;
+    while ((length = readLine()) >= 0) {
+      int start = 0;
+      while (start < length && myLine[start] <= ' ') {
+        start++;
+      }
+      if (start < length && myLine[start] != '#') {
+        return new Command(new String(myLine, 0, length, StandardCharsets.UTF_8));
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Returns whether the script has another command.
+   *
+   * @return true if there is another command.
+   * @throws UncheckedIOException if the file could not be read.
+   */
+  @Override
+  public boolean hasNext() {
+    if (nextCommand == null) {
+      try {
+        nextCommand = readCommand();
+      } catch (IOException e) {
+        throw new UncheckedIOException(e);
+      }
+    }
+    return nextCommand != null;
+  }
+
+  /**
+   * Returns the next command of the script.
+   *
+   * @return the next command.
+   * @throws NoSuchElementException if the script has no more commands.
+   */
+  @Override
+  public Command next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    Command next = nextCommand;
+    nextCommand = null;
+    return next;
+  }
+
+  /**
+   * Returns how much of the file has been read.
+   *
+   * @return the fraction of the file that has been read, from 0 to 1.
+   */
+  public double getProgress() {
+    if (fileSize == 0) {
+      return 1;
+    }
+    return (double) (windowStart + myWindow.position()) / fileSize;
+  }
+
+  /**
+   * Closes the script file.
+   *
+   * @throws IOException if the file could not be closed.
+   */
+  @Override
+  public void close() throws IOException {
+    myChannel.close();
+  }
+
+}
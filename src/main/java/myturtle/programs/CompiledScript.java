@@ -0,0 +1,161 @@
+package myturtle.programs;
+
+import java.util.List;
+import java.util.Set;
+import myturtle.commands.Command;
+import myturtle.programs.program_objects.DrawingTurtle;
+
+/**
+ * A script compiled into a compact array of opcodes, each with a pre-parsed numeric
+ * operand. Turtle commands with a numeric argument (or none) are resolved once when
+ * the script is compiled, so running them involves no string handling. Every other command
+ * is kept as it was written and is run through the usual command dispatch.
+ *
+ * @author William Convertino
+ */
+public class CompiledScript {
+
+  //The opcodes of the script. COMMAND means that the instruction is run from its Command.
+  static final int COMMAND = 0;
+  static final int MOVE = 1;
+  static final int TURN = 2;
+  static final int PEN_UP = 3;
+  static final int PEN_DOWN = 4;
+  static final int HOME = 5;
+  static final int HIDE = 6;
+  static final int SHOW = 7;
+
+  //The opcode and operand of each instruction, and the command it was compiled from.
+  private int[] myOpcodes;
+  private double[] myOperands;
+  private Command[] myCommands;
+
+  //The modification time of the file the script was compiled from.
+  private long myLastModified;
+
+  /**
+   * Compiles a list of commands. Commands handled by the program itself are never
+   * compiled, since the program takes them before the turtle does.
+   *
+   * @param commands the commands to compile.
+   * @param programCommands the commands handled by the program rather than the turtle.
+   * @param lastModified the modification time of the file the commands were read from.
+   */
+  public CompiledScript(List<Command> commands, Set<String> programCommands, long lastModified) {
+    int size = commands.size();
+    this.myOpcodes = new int[size];
+    this.myOperands = new double[size];
+    this.myCommands = commands.toArray(new Command[size]);
+    this.myLastModified = lastModified;
+    for (int i = 0; i < size; i++) {
+      if (!programCommands.contains(myCommands[i].getCommand())) {
+        compile(i);
+      }
+    }
+  }
+
+  //Compiles the command at the given index, leaving it as a COMMAND if it can not be compiled.
+  private void compile(int i) {
+    String name = myCommands[i].getCommand();
+    List<String> args = myCommands[i].getArgs();
+    if (args.isEmpty()) {
+      myOpcodes[i] = getOpcode(name);
+      return;
+    }
+    if (args.size() != 1 || !myCommands[i].isNumber(0)) {
+      return;
+    }
+    double operand = myCommands[i].getNumber(0);
+    if (name.equals("fd") || name.equals("bk")) {
+      myOpcodes[i] = MOVE;
+      myOperands[i] = name.equals("fd") ? operand : -operand;
+    } else if (name.equals("rt") || name.equals("lt")) {
+      myOpcodes[i] = TURN;
+      myOperands[i] = name.equals("rt") ? operand : -operand;
+    }
+  }
+
+  //Returns the opcode of a command that takes no arguments.
+  private int getOpcode(String name) {
+    if (name.equals("pu")) {
+      return PEN_UP;
+    } else if (name.equals("pd")) {
+      return PEN_DOWN;
+    } else if (name.equals("home")) {
+      return HOME;
+    } else if (name.equals("ht")) {
+      return HIDE;
+    } else if (name.equals("st")) {
+      return SHOW;
+    }
+    return COMMAND;
+  }
+
+  /**
+   * Runs the instruction at the given index on a turtle, if it was compiled.
+   *
+   * @param i the index of the instruction.
+   * @param turtle the turtle to run the instruction on.
+   * @return false if the instruction was not compiled, and must be run from its command.
+   */
+  public boolean execute(int i, DrawingTurtle turtle) {
+    int opcode = myOpcodes[i];
+    if (opcode == MOVE) {
+      turtle.forward(myOperands[i]);
+    } else if (opcode == TURN) {
+      turtle.turn(myOperands[i]);
+    } else if (opcode == PEN_UP) {
+      turtle.pu();
+    } else if (opcode == PEN_DOWN) {
+      turtle.pd();
+    } else if (opcode == HOME) {
+      turtle.home();
+    } else if (opcode == HIDE) {
+      turtle.ht();
+    } else if (opcode == SHOW) {
+      turtle.st();
+    } else {
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Returns whether the instruction at the given index was compiled, so that execute runs it.
+   *
+   * @param i the index of the instruction.
+   * @return true if the instruction was compiled.
+   */
+  public boolean isCompiled(int i) {
+    return myOpcodes[i] != COMMAND;
+  }
+
+  /**
+   * Returns the command that the instruction at the given index was compiled from.
+   *
+   * @param i the index of the instruction.
+   * @return the instruction's command.
+   */
+  public Command getCommand(int i) {
+    return myCommands[i];
+  }
+
+  /**
+   * Returns the number of instructions in the script.
+   *
+   * @return the number of instructions.
+   */
+  public int size() {
+    return myCommands.length;
+  }
+
+  /**
+   * Returns the modification time of the file the script was compiled from.
+   *
+   * @return the modification time, or 0 if the file can not change.
+   */
+  public long getLastModified() {
+    return myLastModified;
+  }
+
+}
@@ -5,14 +5,21 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.PrimitiveIterator;
 import javafx.scene.Node;
 import javafx.scene.control.Label;
 import javafx.scene.control.Slider;
 import myturtle.commands.Command;
-import myturtle.display.DisplayPackage;
+import myturtle.display.SegmentBuffer;
 import myturtle.error_handling.InvalidArgumentException;
+import myturtle.programs.program_objects.Deadline;
 import myturtle.programs.program_objects.DrawingTurtle;
+import myturtle.programs.program_objects.LSystemCache;
+import myturtle.programs.program_objects.LSystemExpansion;
 import myturtle.programs.program_objects.LSystemTurtle;
+import myturtle.programs.program_objects.ParallelLSystemRenderer;
+import myturtle.programs.program_objects.SymbolTable;
+import myturtle.programs.program_objects.Turtle;
 
 /**
  * A program that allows users to draw on a canvas using a programmable Turtle.
@@ -35,6 +42,12 @@ public class LSystemVisualizerProgram extends Program {
 
   }};
 
+  /**The length of each step unless another length is set.**/
+  public static final double DEFAULT_LENGTH = LSystemTurtle.STEP_LENGTH;
+
+  //The number of symbols drawn one at a time between checks of the drawing's deadline.
+  private static final int DEADLINE_INTERVAL = 1 << 12;
+
   //A map of all the symbols and their associated command sequences.
   private Map<String, List<Command>> mySymbolLibrary;
 
@@ -47,9 +60,19 @@ public class LSystemVisualizerProgram extends Program {
   //The current depth of the project.
   private int myDepth;
 
+  //The length each step of the drawing is shown at. The turtle draws with steps of
+  //LSystemTurtle.STEP_LENGTH, and the drawing is scaled to this length when it is shown.
+  private volatile double myLength;
+
   //Signals whether the fractal is ready to execute.
   private boolean readyToExecute;
 
+  //The drawn expansions of each symbol, kept between drawings.
+  private LSystemCache myCache;
+
+  //The renderer for the current symbols, rules, and turn angle (null until one is needed).
+  private ParallelLSystemRenderer myRenderer;
+
   private Slider lengthSlider;
   private Slider angleSlider;
   private Slider levelSlider;
@@ -58,16 +81,30 @@ public class LSystemVisualizerProgram extends Program {
     super(args);
     this.name = "LSystemVisualizer";
     this.myDepth = 1;
+    this.myLength = DEFAULT_LENGTH;
     this.readyToExecute = false;
-    this.programCommands.addAll(new ArrayList<>() {{add("start"); add("rule"); add("set");}});
+    this.programCommands.addAll(new ArrayList<>() {{add("start"); add("rule"); add("set"); add("level"); add("setlength"); add("cache");}});
+    this.myCache = new LSystemCache();
     resetLibraries();
     initializeProgramElements();
-    initializeDisplayPackage();
   }
 
   //Initializes the LSystemTurtle.
   private void initializeProgramElements() {
-    this.myTurtle = new LSystemTurtle();
+    this.myTurtle = createTurtle();
+  }
+
+  /**
+   * Creates a new LSystemTurtle, which moves distances given to it in pixels at the current
+   * length of each step.
+   *
+   * @return the new turtle.
+   */
+  @Override
+  protected Turtle createTurtle() {
+    LSystemTurtle turtle = new LSystemTurtle();
+    turtle.setPixelLength(1 / getDrawingScale());
+    return turtle;
   }
 
   /**
@@ -78,13 +115,7 @@ public class LSystemVisualizerProgram extends Program {
     this.mySymbolLibrary = new HashMap<>();
     this.mySymbolLibrary.putAll(BUIT_IN_LIBRARY);
     this.myRuleLibrary = new HashMap<>();
-  }
-
-  //Creates a display package with all the programs elements.
-  private void initializeDisplayPackage() {
-    this.myDisplayPackage = new DisplayPackage();
-    myDisplayPackage.add(myTurtle.getDisplayShape());
-    this.updateDisplay = true;
+    this.myRenderer = null;
   }
 
   @Override
@@ -105,6 +136,9 @@ public class LSystemVisualizerProgram extends Program {
     lengthSlider = initializeSlider("length", 5, 50, 5, 10, 10);
     angleSlider = initializeSlider("angle", -90, 90, 10, 20, 40);
     levelSlider = initializeSlider("level", 0, 10, 1, 1, 1);
+    listenToSlider(lengthSlider, "setlength");
+    listenToSlider(angleSlider, "setangle");
+    listenToSlider(levelSlider, "level");
   }
 
   //Creates a new slider with the given conditions.
@@ -120,21 +154,14 @@ public class LSystemVisualizerProgram extends Program {
     return mySlider;
   }
 
-  //Updates the values in the slider.
-  private void checkSliders() {
-    try {
-      if (lengthSlider.isValueChanging()) {
-        myTurtle.executeCommand(new Command("setlength " + (int)lengthSlider.getValue()));
-      }
-      if (angleSlider.isValueChanging()) {
-        executeCommand(new Command("setangle " + (int)angleSlider.getValue()));
+  //Queues the given command with the slider's value whenever the user drags the slider,
+  //so that it runs on the program's thread rather than the JavaFX thread.
+  private void listenToSlider(Slider slider, String command) {
+    slider.valueProperty().addListener((observable, oldValue, newValue) -> {
+      if (slider.isValueChanging()) {
+        queueCommand(new Command(command + " " + newValue.intValue()));
       }
-      if (levelSlider.isValueChanging()) {
-        this.myDepth = (int)levelSlider.getValue();
-      }
-    } catch (Exception e) {
-      e.printStackTrace();
-    }
+    });
   }
 
 
@@ -151,6 +178,8 @@ public class LSystemVisualizerProgram extends Program {
     generateCommandListFromString(commandList,new ArrayList<>(Arrays.asList(sequence.split(" "))),
         DrawingTurtle.DEFAULT_DRAWING_COMMANDS);
     mySymbolLibrary.put(symbol, commandList);
+    myCache.clear();
+    myRenderer = null;
     return null;
   }
 
@@ -166,24 +195,72 @@ public class LSystemVisualizerProgram extends Program {
 
   //Updates the pattern.
   public void updatePattern() {
-    String newPattern = "";
-    for (String s: currentPattern.split("")) {
-      if (myRuleLibrary.containsKey(s)) {
-        newPattern += myRuleLibrary.get(s);
+    StringBuilder newPattern = new StringBuilder(currentPattern.length());
+    for (int i = 0; i < currentPattern.length(); i++) {
+      String rule = myRuleLibrary.get(currentPattern.substring(i, i + 1));
+      if (rule != null) {
+        newPattern.append(rule);
       } else {
-        newPattern += s;
+        newPattern.append(currentPattern.charAt(i));
+      }
+    }
+    currentPattern = newPattern.toString();
+  }
+
+  //Returns the current pattern, as set by start and rewritten by updatePattern.
+  String getPattern() {
+    return currentPattern;
+  }
+
+  //Draws the given pattern, one symbol at a time, as it is expanded, checking the deadline
+  //every DEADLINE_INTERVAL symbols.
+  private void drawPattern(PrimitiveIterator.OfInt pattern, Deadline deadline) throws Exception {
+    SymbolTable<List<Command>> symbols = new SymbolTable<>(mySymbolLibrary);
+    for (long drawn = 0; pattern.hasNext(); drawn++) {
+      if (drawn % DEADLINE_INTERVAL == 0) {
+        deadline.check();
+      }
+      List<Command> commands = symbols.get(pattern.nextInt());
+      if (commands != null) {
+        for (Command c : commands) {
+          updateDisplayPackage(myTurtle.executeCommand(c));
+        }
       }
     }
-    currentPattern = newPattern;
   }
 
-  //Draws teh final patten.
-  private void drawPattern(String pattern) throws Exception {
-    for (String s: pattern.split("")) {
-      updateDisplayPackage(myTurtle.executeCommand(mySymbolLibrary.get(s)));
+  //Draws the current pattern from the cached expansions of its symbols if it fits in the
+  //cache, and otherwise in parallel if it is large enough to be worthwhile. A pattern
+  //longer than the turtle's drawing has room for is drawn one symbol at a time instead, so
+  //that it stops at the drawing's limit rather than being expanded in full first.
+  private void drawVisualization() throws Exception {
+    String start = currentPattern == null ? "" : currentPattern;
+    Deadline deadline = getDeadline();
+    ParallelLSystemRenderer renderer = getRenderer();
+    boolean canRender = renderer.canRender(start);
+    if (canRender && renderer.renderCached(start, myDepth, myCache, deadline)) {
+      return;
+    }
+    SegmentBuffer segments = myTurtle.getSegments();
+    long length = canRender ? renderer.getPatternLength(start, myDepth) : 0;
+    if (length >= ParallelLSystemRenderer.PARALLEL_THRESHOLD
+        && length <= segments.getLimit() - segments.size()) {
+      renderer.render(start, myDepth, deadline);
+    } else {
+      drawPattern(new LSystemExpansion(start, myRuleLibrary, myDepth), deadline);
     }
   }
 
+  //Returns the renderer for the current symbols, rules, and turn angle, making a new one
+  //only if they have changed since the last drawing.
+  private ParallelLSystemRenderer getRenderer() {
+    LSystemTurtle turtle = (LSystemTurtle) myTurtle;
+    if (myRenderer == null || !myRenderer.isFor(turtle)) {
+      myRenderer = new ParallelLSystemRenderer(mySymbolLibrary, myRuleLibrary, turtle);
+    }
+    return myRenderer;
+  }
+
   /**
    * Adds a rule to the current rule library associated with the given symbol.
    *
@@ -193,29 +270,100 @@ public class LSystemVisualizerProgram extends Program {
    */
   public Object rule(String symbol, String pattern) {
     this.myRuleLibrary.put(symbol, pattern);
+    myCache.clear();
+    myRenderer = null;
     return null;
   }
 
   //Runs the visualizer program.
   private void runVisualization() throws Exception {
-    if (this.instructionList == null)  {
-      return;
-    }
     if (readyToExecute) {
-      for (int i = 0; i < myDepth; i++) {
-        updatePattern();
-      }
-      drawPattern(currentPattern);
+      drawVisualization();
       readyToExecute = false;
-    } else if (instructionIndex < instructionList.size()) {
-      for (int i = 0; i < instructionList.size(); i++) {
-        executeCommand(readNextInstruction());
-        }
+    } else if (!super.isFinished()) {
+      Command next;
+      while ((next = readNextInstruction()) != null) {
+        executeCommand(next);
+      }
       readyToExecute = true;
     }
 
   }
 
+  /**
+   * Sets the number of times the rules are applied to the pattern.
+   *
+   * @param depth the depth of the pattern.
+   * @return null.
+   */
+  public Object level(String depth) {
+    this.myDepth = Integer.parseInt(depth);
+    return null;
+  }
+
+  /**
+   * Sets the length each step is shown at. Since this only scales the drawing, nothing is
+   * drawn again, and the new length applies to what has already been drawn as well. Moves
+   * given an explicit distance (such as "fd 10") are drawn from now on so that they are
+   * shown at that many pixels, while those already drawn are scaled with the rest.
+   *
+   * @param length the length of each step, which must be positive.
+   * @return null.
+   */
+  public Object setlength(String length) {
+    double value = Double.parseDouble(length);
+    if (!(value > 0)) {
+      throw new IllegalArgumentException(length);
+    }
+    this.myLength = value;
+    for (Turtle turtle : getTurtles()) {
+      ((LSystemTurtle) turtle).setPixelLength(1 / getDrawingScale());
+    }
+    return null;
+  }
+
+  /**
+   * Returns the length each step is shown at, which the drawing is scaled by.
+   *
+   * @return the length of each step.
+   */
+  @Override
+  public double getDrawingScale() {
+    return myLength / LSystemTurtle.STEP_LENGTH;
+  }
+
+  /**
+   * Sets the most memory kept for the drawn expansions of symbols, which make drawing a
+   * pattern again (or one level deeper) much faster.
+   *
+   * @param megabytes the most memory to keep, in megabytes (0 to keep none).
+   * @return null.
+   */
+  public Object cache(String megabytes) {
+    double budget = Double.parseDouble(megabytes);
+    if (!(budget >= 0)) {
+      throw new IllegalArgumentException(megabytes);
+    }
+    myCache.setBudget((long) (budget * (1 << 20)));
+    return null;
+  }
+
+  /**
+   * Limits the memory kept for the drawn expansions of symbols, which the cache command can
+   * then set no higher than.
+   *
+   * @param bytes the most memory to keep, in bytes.
+   */
+  @Override
+  public void setCacheLimit(long bytes) {
+    myCache.setLimit(bytes);
+  }
+
+  @Override
+  public boolean isFinished() {
+    return super.isFinished() && !readyToExecute;
+  }
+
   /**
    * Updates the program each game loop.
    *
@@ -223,11 +371,12 @@ public class LSystemVisualizerProgram extends Program {
    */
   @Override
   public void update() throws Exception {
-    checkSliders();
     try {
       runVisualization();
     } catch (Exception e) {
-      this.instructionIndex = instructionList.size();
+      //A drawing that failed or was stopped is not started again.
+      readyToExecute = false;
+      clearInstructions();
       throw e;
     }
   }
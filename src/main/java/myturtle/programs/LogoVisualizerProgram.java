@@ -1,9 +1,9 @@
 package myturtle.programs;
 
 import java.util.List;
-import myturtle.display.DisplayPackage;
 import myturtle.error_handling.InvalidArgumentException;
 import myturtle.programs.program_objects.LogoTurtle;
+import myturtle.programs.program_objects.Turtle;
 
 /**
  * A program that allows users to draw on a canvas using a programmable Turtle.
@@ -21,19 +21,21 @@ public class LogoVisualizerProgram extends Program {
     super(args);
     this.name = "LogoVisualizer";
     initializeProgramElements();
-    initializeDisplayPackage();
   }
 
   //Initializes the Turtle.
   private void initializeProgramElements() {
-    this.myTurtle = new LogoTurtle();
+    this.myTurtle = createTurtle();
   }
 
-  //Creates a display package with all the programs elements.
-  private void initializeDisplayPackage() {
-    this.myDisplayPackage = new DisplayPackage();
-    myDisplayPackage.add(myTurtle.getDisplayShape());
-    this.updateDisplay = true;
+  /**
+   * Creates a new LogoTurtle.
+   *
+   * @return the new turtle.
+   */
+  @Override
+  protected Turtle createTurtle() {
+    return new LogoTurtle();
   }
 
   /**
@@ -43,7 +45,7 @@ public class LogoVisualizerProgram extends Program {
    */
   @Override
   public void update() throws Exception {
-    executeCommand(readNextInstruction());
+    executeNextInstruction();
   }
 
 
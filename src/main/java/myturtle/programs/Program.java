@@ -2,19 +2,27 @@ package myturtle.programs;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javafx.scene.Node;
-import javafx.scene.shape.Shape;
 import myturtle.commands.Command;
 import myturtle.commands.CommandReader;
 import myturtle.display.DisplayPackage;
 import myturtle.error_handling.InvalidArgumentException;
 import myturtle.io.FileReader;
+import myturtle.io.ScriptLoader;
+import myturtle.programs.program_objects.Deadline;
+import myturtle.programs.program_objects.DrawingTurtle;
 import myturtle.programs.program_objects.Turtle;
+import myturtle.programs.program_objects.TurtleGroup;
 
 /**
  * An abstract class from which each program must be built. It contains
@@ -29,18 +37,35 @@ public abstract class Program extends CommandReader {
   /** A list of all the valid commands for this program. **/
   protected Set<String> programCommands =
       new HashSet<String>(Arrays.asList(new String[]
-          {"run"}));
+          {"run", "turtles", "tell", "ask"}));
 
+  /**The name of every turtle, as given to tell and ask.**/
+  public static final String ALL_TURTLES = "all";
+
+  //The first turtle, which is the only one unless more are created.
   protected Turtle myTurtle;
 
+  //Every turtle of the program (created once the program first sends a turtle a command),
+  //which is read by the thread showing the program.
+  private volatile TurtleGroup myTurtles;
+
+  //The time limit that drawings of the program stop at (null if they have none).
+  private Deadline myTimeLimit;
+
   //The name of the program.
   protected String name;
 
   //An array of the program's arguments
   protected List<String> args;
 
-  //An arraylist with each instruction.
-  protected List<Command> instructionList;
+  //The compiled instructions of the loaded script.
+  protected CompiledScript instructionList;
+
+  //The instructions of a script too large to load at once, read in the background.
+  protected ScriptLoader instructionStream;
+
+  //Each script that has been loaded, by file name, so it is only compiled once.
+  private Map<String, CompiledScript> compiledScripts;
 
   //The current instruction.
   protected int instructionIndex;
@@ -54,9 +79,14 @@ public abstract class Program extends CommandReader {
   //Signals whether a new display element has been added.
   protected boolean updateDisplay;
 
+  //Commands waiting to be run by the thread running the program, in the order they came.
+  private Queue<Command> queuedCommands;
+
   public Program (List<String> args) {
     this.args = args;
     this.instructionIndex = 0;
+    this.compiledScripts = new HashMap<>();
+    this.queuedCommands = new ConcurrentLinkedQueue<>();
   }
 
   /**
@@ -71,12 +101,19 @@ public abstract class Program extends CommandReader {
 
   /**
    * Returns a DisplayPackage that contains all the
-   * display elements that the program will need.
+   * display elements that the program will need, if anything in it has changed.
+   * The package (and the JavaFX elements in it) is only created once it is first
+   * requested, so a program can run without a display. The turtle's shape is not brought
+   * up to date with the turtle, since it may be showing while the program runs on another
+   * thread; that is left to whoever shows it.
    *
-   * @return a DisplayPackage with all the used JavaFX elements.
+   * @return a DisplayPackage with all the used JavaFX elements, or null if nothing changed.
    */
   public DisplayPackage getDisplayPackage() {
-    if (updateDisplay) {
+    if (myDisplayPackage == null) {
+      initializeDisplayPackage();
+    }
+    if (updateDisplay || myDisplayPackage.hasChanges()) {
       updateDisplay = false;
       return myDisplayPackage;
     } else {
@@ -84,6 +121,16 @@ public abstract class Program extends CommandReader {
     }
   }
 
+  //Creates a display package with the turtle and everything it draws.
+  protected void initializeDisplayPackage() {
+    this.myDisplayPackage = new DisplayPackage();
+    for (Turtle turtle : getTurtles()) {
+      myDisplayPackage.add(turtle.getDisplayShape());
+    }
+    myDisplayPackage.setSegments(myTurtle.getSegments());
+    this.updateDisplay = true;
+  }
+
   /**
    * Adds a node to the program's display package and signals the engine to add new elements
    * to the display.
@@ -94,6 +141,9 @@ public abstract class Program extends CommandReader {
     if (n == null) {
       return;
     }
+    if (myDisplayPackage == null) {
+      initializeDisplayPackage();
+    }
     myDisplayPackage.addFirst(n);
     updateDisplay = true;
   }
@@ -110,7 +160,7 @@ public abstract class Program extends CommandReader {
     }
     for (Node n: nodeList) {
       if (n != null) {
-        myDisplayPackage.addFirst(n);
+        updateDisplayPackage(n);
       }
     }
     updateDisplay = true;
@@ -118,15 +168,20 @@ public abstract class Program extends CommandReader {
 
   /**
    * Takes in an Object and adds all elements associated with that object to
-   * the display.
+   * the display. Anything that is neither a node nor a list is ignored, as is anything in a
+   * list that is not a node.
    *
    * @param o the object to display.
    */
   public void updateDisplayPackage(Object o) {
     if (o instanceof List) {
-      updateDisplayPackage((ArrayList)o);
-    } else {
-      updateDisplayPackage((Node)o);
+      for (Object element : (List<?>) o) {
+        if (element instanceof Node) {
+          updateDisplayPackage((Node) element);
+        }
+      }
+    } else if (o instanceof Node) {
+      updateDisplayPackage((Node) o);
     }
   }
 
@@ -135,15 +190,183 @@ public abstract class Program extends CommandReader {
   }
 
   /**
-   * Loads a file into the program's instruction list.
+   * Returns the first turtle controlled by this program, whose drawing every turtle of the
+   * program draws into.
+   *
+   * @return the program's first turtle.
+   */
+  public Turtle getTurtle() {
+    return myTurtle;
+  }
+
+  /**
+   * Returns every turtle controlled by this program, in the order they were created. Can be
+   * called from any thread.
+   *
+   * @return the program's turtles.
+   */
+  public Turtle[] getTurtles() {
+    TurtleGroup turtles = myTurtles;
+    return turtles == null ? new Turtle[] {myTurtle} : turtles.getTurtles();
+  }
+
+  /**
+   * Returns the deadline of a drawing started now by the thread running the program, which
+   * stops the drawing if that thread is interrupted, or once the program's time limit runs
+   * out.
+   *
+   * @return the deadline for drawings made by the current step of the program.
+   */
+  protected Deadline getDeadline() {
+    return myTimeLimit != null ? myTimeLimit : new Deadline(Thread.currentThread());
+  }
+
+  /**
+   * Sets the deadline that the program's drawings stop at, in place of stopping only once the
+   * thread running them is interrupted. Must be called from the thread running the program.
+   *
+   * @param deadline the deadline of every drawing from now on (null to remove it).
+   */
+  public void setTimeLimit(Deadline deadline) {
+    this.myTimeLimit = deadline;
+  }
+
+  /**
+   * Limits how much memory the program may keep between drawings to draw faster, such as
+   * the expansions an L-system program caches. Programs that keep nothing ignore it.
+   *
+   * @param bytes the most memory the program may keep, in bytes.
+   */
+  public void setCacheLimit(long bytes) {
+  }
+
+  /**
+   * Returns how much the program's drawing is scaled by when it is shown, about the home of
+   * its turtles. A program that draws at a size of its own choosing can change this rather
+   * than drawing again. Can be called from any thread.
+   *
+   * @return the scale of the drawing (1 to show it as it is drawn).
+   */
+  public double getDrawingScale() {
+    return 1;
+  }
+
+  //Returns the program's turtles, grouping them the first time they are needed.
+  private TurtleGroup getTurtleGroup() {
+    if (myTurtles == null) {
+      myTurtles = new TurtleGroup(myTurtle);
+    }
+    return myTurtles;
+  }
+
+  /**
+   * Creates a new turtle of the kind this program controls.
+   *
+   * @return the new turtle.
+   */
+  protected abstract Turtle createTurtle();
+
+  /**
+   * Sets the number of turtles, creating new turtles at home or removing the newest ones.
+   * The first turtle is never removed.
+   *
+   * @param count the number of turtles.
+   * @return null.
+   */
+  public Object turtles(String count) {
+    int newCount = Integer.parseInt(count);
+    if (newCount < 1) {
+      throw new IllegalArgumentException(count);
+    }
+    TurtleGroup group = getTurtleGroup();
+    List<Turtle> created = new ArrayList<>();
+    for (int i = group.size(); i < newCount; i++) {
+      Turtle turtle = createTurtle();
+      if (myDisplayPackage != null) {
+        //The shape is made before the turtle can be seen from the JavaFX thread.
+        myDisplayPackage.add(turtle.getDisplayShape());
+      }
+      created.add(turtle);
+    }
+    group.addAll(created);
+    for (Turtle turtle : group.truncate(newCount)) {
+      if (myDisplayPackage != null) {
+        myDisplayPackage.remove(turtle.getDisplayShape());
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Sends the turtle commands that follow to the given turtle, or to every turtle.
+   *
+   * @param turtle the index of the turtle (from 0), or "all".
+   * @return null.
+   */
+  public Object tell(String turtle) {
+    getTurtleGroup().tell(parseTurtle(turtle));
+    return null;
+  }
+
+  /**
+   * Runs turtle commands on the given turtle, or on every turtle, without changing which
+   * turtle the commands that follow are sent to.
+   *
+   * @param turtle the index of the turtle (from 0), or "all".
+   * @param commands the commands to run, such as "fd 10 rt 90".
+   * @return null.
+   */
+  public Object ask(String turtle, String commands) throws Exception {
+    int index = parseTurtle(turtle);
+    List<Command> commandList = new ArrayList<>();
+    generateCommandListFromString(commandList, Arrays.asList(commands.trim().split("\\s+")),
+        DrawingTurtle.DEFAULT_DRAWING_COMMANDS);
+    for (Command command : commandList) {
+      updateDisplayPackage(getTurtleGroup().run(index, t -> t.executeCommand(command)));
+    }
+    return null;
+  }
+
+  //Returns the index of the named turtle, or TurtleGroup.ALL.
+  private int parseTurtle(String turtle) {
+    return turtle.equals(ALL_TURTLES) ? TurtleGroup.ALL : Integer.parseInt(turtle);
+  }
+
+  /**
+   * Returns whether the program has no instructions left to run.
+   *
+   * @return true if every loaded instruction has been run.
+   */
+  public boolean isFinished() {
+    if (instructionStream != null) {
+      return instructionStream.isFinished();
+    }
+    return instructionList == null || instructionIndex >= instructionList.size();
+  }
+
+  /**
+   * Loads a file into the program's instruction list. The file is compiled the first time
+   * it is loaded, and again only if it has changed since. Files too large to load at once
+   * are instead read in the background while they run.
    *
    * @param filename the name of the file to read as instructions.
    */
   public void loadFileAsInstructions(String filename) throws IOException {
-    this.instructionIndex = 0;
+    clearInstructions();
     try {
-      FileReader myFileReader = new FileReader(filename);
-      this.instructionList = myFileReader.getCommandList();
+      if (FileReader.shouldStream(filename)) {
+        this.instructionStream = new ScriptLoader(Path.of(filename));
+        return;
+      }
+      long lastModified = FileReader.getLastModified(filename);
+      CompiledScript script = compiledScripts.get(filename);
+      if (script == null || script.getLastModified() != lastModified) {
+        try (FileReader myFileReader = new FileReader(filename)) {
+          script = new CompiledScript(myFileReader.getCommandList(), programCommands, lastModified);
+        }
+        compiledScripts.put(filename, script);
+      }
+      this.instructionList = script;
     } catch (FileNotFoundException e) {
       throw new myturtle.error_handling.FileNotFoundException(filename);
     } catch (IOException e) {
@@ -152,20 +375,112 @@ public abstract class Program extends CommandReader {
   }
 
   /**
-   *  Returns the next instruction in the instruction list.
+   * Returns how much of the loaded script has been read.
+   *
+   * @return the fraction of the script that has been read, from 0 to 1.
+   */
+  public double getLoadProgress() {
+    return instructionStream == null ? 1 : instructionStream.getProgress();
+  }
+
+  /**
+   * Removes any loaded instructions, stopping the background reading of the script if it
+   * is still being read.
+   *
+   * @throws IOException if the script file could not be closed.
+   */
+  public void clearInstructions() throws IOException {
+    this.instructionList = null;
+    this.instructionIndex = 0;
+    if (instructionStream != null) {
+      instructionStream.close();
+      instructionStream = null;
+    }
+  }
+
+  /**
+   *  Returns the next instruction in the instruction list, waiting for it to be read if
+   *  the script is being read in the background.
    *
    * @return the next instruction in the instruction list.
    */
-  protected Command readNextInstruction() {
+  protected Command readNextInstruction() throws IOException {
+    if (instructionStream != null) {
+      Command next = instructionStream.take();
+      if (next == null) {
+        clearInstructions();
+      }
+      return next;
+    }
     if (instructionList == null || instructionIndex>=instructionList.size()) {
       instructionList = null;
       return null;
     }
-    Command next = instructionList.get(instructionIndex);
+    Command next = instructionList.getCommand(instructionIndex);
     instructionIndex ++;
     return(next);
   }
 
+  /**
+   * Runs the next instruction in the instruction list. Compiled instructions are run
+   * directly on the turtle, and the rest are executed as commands. If the script is being
+   * read in the background and its next instruction is not ready yet, nothing is run.
+   *
+   * @throws Exception if the instruction is invalid.
+   */
+  protected void executeNextInstruction() throws Exception {
+    if (instructionStream != null) {
+      Command next = instructionStream.poll();
+      if (next != null) {
+        executeCommand(next);
+      } else if (instructionStream.isFinished()) {
+        clearInstructions();
+      }
+      return;
+    }
+    if (instructionList == null || instructionIndex>=instructionList.size()) {
+      instructionList = null;
+      return;
+    }
+    CompiledScript script = instructionList;
+    int index = instructionIndex;
+    instructionIndex ++;
+    if (myTurtles == null) {
+      if (!(myTurtle instanceof DrawingTurtle) || !script.execute(index, (DrawingTurtle) myTurtle)) {
+        executeCommand(script.getCommand(index));
+      }
+    } else if (script.isCompiled(index)) {
+      updateDisplayPackage(myTurtles.run(turtle -> turtle instanceof DrawingTurtle
+          && script.execute(index, (DrawingTurtle) turtle)
+          ? null : turtle.executeCommand(script.getCommand(index))));
+    } else {
+      executeCommand(script.getCommand(index));
+    }
+  }
+
+  /**
+   * Queues a command to be run the next time the program runs its queued commands. Can be
+   * called from any thread, such as the JavaFX thread while the program runs on another.
+   *
+   * @param command the command to queue.
+   */
+  public void queueCommand(Command command) {
+    queuedCommands.add(command);
+  }
+
+  /**
+   * Runs every queued command, in the order they were queued. If a command throws an
+   * exception, the commands after it stay queued.
+   *
+   * @throws Exception if a command is invalid.
+   */
+  public void runQueuedCommands() throws Exception {
+    Command next;
+    while ((next = queuedCommands.poll()) != null) {
+      executeCommand(next);
+    }
+  }
+
   /**
    * Executes a passed command.
    *
@@ -197,11 +512,17 @@ public abstract class Program extends CommandReader {
   }
 
   private void runTurtleCommands(Command myCommand) throws Exception {
-    Object myObject = myTurtle.executeCommand(myCommand);
-    if (myObject instanceof ArrayList) {
-      updateDisplayPackage((ArrayList)myObject);
-    } else {
-      updateDisplayPackage((Shape)myObject);
+    if (myTurtles != null) {
+      updateDisplayPackage(myTurtles.run(turtle -> turtle.executeCommand(myCommand)));
+      return;
+    }
+    updateDisplayPackage(myTurtle.executeCommand(myCommand));
+  }
+
+  //Adds the display elements returned by a command run on each of a group of turtles.
+  private void updateDisplayPackage(Object[] results) {
+    for (Object result : results) {
+      updateDisplayPackage(result);
     }
   }
 
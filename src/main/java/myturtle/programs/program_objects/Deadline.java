@@ -0,0 +1,62 @@
+package myturtle.programs.program_objects;
+
+/**
+ * Decides when a drawing has to stop early: once the thread that started it is interrupted,
+ * or once its program has run for longer than it is allowed to. A single command can draw a
+ * whole L-system pattern, so long drawings check their deadline as they go, from whichever
+ * thread is drawing each part of them, rather than only between the steps of their program.
+ *
+ * @author William Convertino
+ */
+public class Deadline {
+
+  /**A deadline that never passes.**/
+  public static final Deadline NONE = new Deadline(null);
+
+  //The thread whose interruption stops the drawing (null if nothing does).
+  private final Thread myThread;
+
+  //The System.nanoTime() after which the drawing stops, and how long it was allowed to run
+  //for in total (0 if it has no time limit).
+  private final long stopNanos;
+  private final long maxNanos;
+
+  /**
+   * Constructs a deadline that passes once the given thread is interrupted.
+   *
+   * @param thread the thread running the drawing's program (null if it is never stopped).
+   */
+  public Deadline(Thread thread) {
+    this(thread, 0, 0);
+  }
+
+  /**
+   * Constructs a deadline that passes once the given thread is interrupted, or once the
+   * given time limit runs out.
+   *
+   * @param thread the thread running the drawing's program (null if it is never stopped).
+   * @param stopNanos the System.nanoTime() at which the time limit runs out.
+   * @param maxNanos the time limit, in nanoseconds, counted up to stopNanos (0 if unlimited).
+   */
+  public Deadline(Thread thread, long stopNanos, long maxNanos) {
+    this.myThread = thread;
+    this.stopNanos = stopNanos;
+    this.maxNanos = maxNanos;
+  }
+
+  /**
+   * Stops the drawing if its deadline has passed. The thread's interrupt is left set, so
+   * that whatever runs the program can see why it stopped.
+   *
+   * @throws IllegalStateException if the drawing must stop.
+   */
+  public void check() {
+    if (myThread != null && myThread.isInterrupted()) {
+      throw new IllegalStateException("Stopped while drawing");
+    }
+    if (maxNanos > 0 && System.nanoTime() - stopNanos > 0) {
+      throw new IllegalStateException("Ran for more than " + maxNanos / 1_000_000 + "ms");
+    }
+  }
+
+}
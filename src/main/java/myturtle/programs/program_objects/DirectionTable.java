@@ -0,0 +1,133 @@
+package myturtle.programs.program_objects;
+
+/**
+ * The unit vectors of every heading a turtle can face when it only ever turns by multiples
+ * of a fixed step that divides a full circle, as in most L-systems. Headings are referred
+ * to by how many steps they are from the starting angle, so moving the turtle is a lookup
+ * and a multiply-add rather than a call to Math.cos and Math.sin.
+ *
+ * Turtles work out their headings with the same cos and sin as the table, from the angle
+ * brought into [0, 360), so a heading read from the table is exactly the one a turtle that
+ * turned the same amount would have. The quarter turns give exactly 0, 1, and -1, so a turtle
+ * that only faces them moves by whole numbers when its moves are whole.
+ *
+ * @author William Convertino
+ */
+public class DirectionTable {
+
+  /**The most headings a table can hold.**/
+  public static final int MAX_HEADINGS = 360;
+
+  //The unit vectors of the quarter turns, which Math.cos and Math.sin only come close to.
+  private static final double[] QUARTER_X = {1, 0, -1, 0};
+  private static final double[] QUARTER_Y = {0, 1, 0, -1};
+
+  //The x and y components of the unit vector of each heading.
+  private final double[] headingX;
+  private final double[] headingY;
+
+  //Constructs a table of the given number of headings, each one step after the last.
+  private DirectionTable(double startAngle, double step, int headings) {
+    this.headingX = new double[headings];
+    this.headingY = new double[headings];
+    for (int i = 0; i < headings; i++) {
+      headingX[i] = cos(startAngle + i * step);
+      headingY[i] = sin(startAngle + i * step);
+    }
+  }
+
+  /**
+   * Returns the x component of the unit vector of an angle. Angles a whole number of turns
+   * apart give exactly the same result, and quarter turns give exactly 0, 1, or -1.
+   *
+   * @param angle the angle (in degrees).
+   * @return the cosine of the angle.
+   */
+  public static double cos(double angle) {
+    double normalized = normalize(angle);
+    if (normalized % 90 == 0) {
+      return QUARTER_X[(int) (normalized / 90) % 4];
+    }
+    return Math.cos(Math.toRadians(normalized));
+  }
+
+  /**
+   * Returns the y component of the unit vector of an angle. Angles a whole number of turns
+   * apart give exactly the same result, and quarter turns give exactly 0, 1, or -1.
+   *
+   * @param angle the angle (in degrees).
+   * @return the sine of the angle.
+   */
+  public static double sin(double angle) {
+    double normalized = normalize(angle);
+    if (normalized % 90 == 0) {
+      return QUARTER_Y[(int) (normalized / 90) % 4];
+    }
+    return Math.sin(Math.toRadians(normalized));
+  }
+
+  //Brings an angle into [0, 360). The remainder is exact, so whole angles stay whole.
+  private static double normalize(double angle) {
+    double remainder = angle % 360;
+    return remainder < 0 ? remainder + 360 : remainder + 0.0;
+  }
+
+  /**
+   * Returns the table of headings reached from a starting angle by turning in multiples of
+   * the given step. Both must be whole, so that the angle a turtle reaches by adding up its
+   * turns is exactly the angle of the heading it looks up.
+   *
+   * @param startAngle the angle (in whole degrees) of the first heading.
+   * @param step the angle (in whole degrees) between neighboring headings.
+   * @return the table, or null if the start angle is not whole or the step does not evenly
+   *     divide a full circle.
+   */
+  public static DirectionTable forStep(double startAngle, long step) {
+    if (step <= 0 || 360 % step != 0 || 360 / step > MAX_HEADINGS
+        || startAngle != Math.rint(startAngle) || Math.abs(startAngle) > 1L << 40) {
+      return null;
+    }
+    return new DirectionTable(startAngle, step, (int) (360 / step));
+  }
+
+  /**
+   * Returns the heading a number of steps after another one.
+   *
+   * @param heading the index of the starting heading.
+   * @param steps the number of steps to turn (negative to turn counter-clockwise).
+   * @return the index of the heading that is reached.
+   */
+  public int turn(int heading, int steps) {
+    return Math.floorMod(heading + steps, headingX.length);
+  }
+
+  /**
+   * Returns the x component of a heading's unit vector.
+   *
+   * @param heading the index of the heading.
+   * @return the x component of the heading.
+   */
+  public double getX(int heading) {
+    return headingX[heading];
+  }
+
+  /**
+   * Returns the y component of a heading's unit vector.
+   *
+   * @param heading the index of the heading.
+   * @return the y component of the heading.
+   */
+  public double getY(int heading) {
+    return headingY[heading];
+  }
+
+  /**
+   * Returns the number of headings in the table.
+   *
+   * @return the number of headings.
+   */
+  public int size() {
+    return headingX.length;
+  }
+
+}
@@ -3,10 +3,10 @@ package myturtle.programs.program_objects;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.Set;
-import javafx.scene.paint.Color;
-import javafx.scene.shape.Line;
 import javafx.scene.shape.Polygon;
-import javafx.scene.transform.Rotate;
+import myturtle.commands.Command;
+import myturtle.display.DisplayRenderer;
+import myturtle.display.SegmentBuffer;
 
 public class DrawingTurtle extends Turtle {
 
@@ -19,34 +19,93 @@ public class DrawingTurtle extends Turtle {
   //Keeps track of the state of the pen.
   protected boolean penDown;
 
+  //The state of the pen when saveState was last called.
+  private boolean savedPenDown;
+
   /**
    * Constructs a new Turtle with a default shape pointed up.
    */
   public DrawingTurtle () {
-    setDisplayShape();
+    super();
+  }
+
+  /**
+   * Executes the given command. Movement and turning commands with a numeric argument use
+   * the value parsed with the command, and run without any string handling.
+   *
+   * @param command the command to execute.
+   * @return any objects returned by the executed command.
+   * @throws Exception if the command or its arguments are invalid.
+   */
+  @Override
+  public Object executeCommand(Command command) throws Exception {
+    if (command != null && command.getArgs() != null && command.getArgs().size() == 1
+        && command.isNumber(0)) {
+      String name = command.getCommand();
+      double value = command.getNumber(0);
+      if (name.equals("fd")) {
+        forward(value);
+        return null;
+      } else if (name.equals("bk")) {
+        forward(-value);
+        return null;
+      } else if (name.equals("rt")) {
+        turn(value);
+        return null;
+      } else if (name.equals("lt")) {
+        turn(-value);
+        return null;
+      }
+    }
+    return super.executeCommand(command);
+  }
+
+  @Override
+  protected void saveState() {
+    super.saveState();
+    savedPenDown = penDown;
+  }
+
+  @Override
+  protected void restoreState() {
+    super.restoreState();
+    penDown = savedPenDown;
+  }
+
+  //Parses a numeric argument, throwing a NumberFormatException if it is not a number.
+  protected static double parse(String value) throws NumberFormatException {
+    double number = Command.parseNumber(value);
+    if (Double.isNaN(number)) {
+      throw new NumberFormatException(value);
+    }
+    return number;
   }
 
   /**
-   *  Moves the turtle forwards the specified number of pixels.
+   *  Moves the turtle forwards the specified number of pixels, adding a segment to
+   *  its drawing if the pen is down.
    *
    * @param distance the number of pixels to move.
    * @return null.
    */
   public Object fd(String distance) throws NumberFormatException {
-    int distanceToMove = Integer.parseInt(distance);
-    double oldX = myDisplayShape.getLayoutX();
-    double oldY = myDisplayShape.getLayoutY();
-    myDisplayShape.setLayoutX( oldX +  (distanceToMove * Math.cos(Math.toRadians(angle))));
-    myDisplayShape.setLayoutY( oldY + (distanceToMove * Math.sin(Math.toRadians(angle))));
-    Line myLine = null;
+    forward(parse(distance));
+    return null;
+  }
+
+  /**
+   * Moves the turtle forwards the given distance, adding a segment to its drawing if
+   * the pen is down.
+   *
+   * @param distanceToMove the number of pixels to move (negative to move backwards).
+   */
+  public void forward(double distanceToMove) {
+    double oldX = xPos;
+    double oldY = yPos;
+    moveTo(oldX + distanceToMove * headingX, oldY + distanceToMove * headingY);
     if (penDown) {
-      myLine = new Line();
-      myLine.setStartX(oldX);
-      myLine.setStartY(oldY);
-      myLine.setEndX(myDisplayShape.getLayoutX());
-      myLine.setEndY(myDisplayShape.getLayoutY());
+      mySegments.add(oldX, oldY, xPos, yPos, SegmentBuffer.DEFAULT_STYLE);
     }
-    return(myLine);
   }
 
   /**
@@ -56,15 +115,25 @@ public class DrawingTurtle extends Turtle {
    * @return null.
    */
   public Object bk(String distance) throws NumberFormatException {
-    return fd(negate(distance));
+    forward(-parse(distance));
+    return null;
   }
 
-  //Rotates the turtle by angle given.
-  private void rotate(int angle) {
+  /**
+   * Turns the turtle clockwise by the given number of degrees.
+   *
+   * @param angle the angle to turn (negative to turn counter-clockwise).
+   */
+  public void turn(double angle) {
     this.angle += angle;
-    Rotate myRotate = new Rotate();
-    myRotate.setAngle(angle);
-    myDisplayShape.getTransforms().addAll(myRotate);
+    updateHeading();
+  }
+
+  //Moves the turtle to the given position and angle without drawing, and sets its pen.
+  void setState(double x, double y, double angle, boolean penDown) {
+    moveTo(x, y);
+    setAngle(angle);
+    this.penDown = penDown;
   }
 
   /**
@@ -74,8 +143,7 @@ public class DrawingTurtle extends Turtle {
    * @return null.
    */
   public Object lt(String angle) throws NumberFormatException {
-    int angleToRotate = Integer.parseInt(angle, 10);
-    rotate(-1 * angleToRotate);
+    turn(-parse(angle));
     return null;
   }
 
@@ -87,8 +155,7 @@ public class DrawingTurtle extends Turtle {
    * @return null.
    */
   public Object rt(String angle) throws NumberFormatException {
-    int angleToRotate = Integer.parseInt(angle, 10);
-    rotate(angleToRotate);
+    turn(parse(angle));
     return null;
   }
 
@@ -118,7 +185,7 @@ public class DrawingTurtle extends Turtle {
    * @return null.
    */
   public Object ht() {
-    myDisplayShape.setStroke(Color.TRANSPARENT);
+    this.visible = false;
     return null;
   }
 
@@ -128,23 +195,23 @@ public class DrawingTurtle extends Turtle {
    * @return null.
    */
   public Object st() {
-    myDisplayShape.setStroke(Color.BLUE);
+    this.visible = true;
     return null;
   }
 
   /**
-   * Creates a non-moving duplicate of the turtle's image.
+   * Creates a non-moving duplicate of the turtle's image where the turtle is. Unlike the
+   * turtle, the duplicate is part of the drawing, so it is scaled with it.
    *
-   * @return the copy of the turtle.
+   * @return the copy of the turtle's image.
    */
   public Object stamp() {
     Turtle copy = new Turtle();
+    copy.moveTo(xPos, yPos);
     copy.setAngle(this.angle);
     Polygon copyShape = copy.getDisplayShape();
-    copyShape.setStroke(copyShape.getStroke());
-    copyShape.setLayoutX(copyShape.getLayoutX());
-    copyShape.setLayoutY(copyShape.getLayoutY());
-    return (copy);
+    DisplayRenderer.setScaledWithDrawing(copyShape, true);
+    return copyShape;
   }
 
 }
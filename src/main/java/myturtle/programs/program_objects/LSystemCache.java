@@ -0,0 +1,140 @@
+package myturtle.programs.program_objects;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import myturtle.display.SegmentBuffer;
+
+/**
+ * The drawn expansions of L-system symbols, kept so that drawing a pattern again, or one
+ * level deeper, does not redo the work of expanding it. Each expansion is kept by its
+ * symbol, its depth, and whether the pen starts down, and is drawn in the symbol's own frame
+ * (from the origin, facing an angle of 0), so that it can be reused wherever the symbol
+ * appears. The least recently used expansions are dropped once the cache holds more than
+ * its budget.
+ *
+ * Expansions are only valid for the symbols and rules they were drawn with, so the cache
+ * must be cleared whenever those change.
+ *
+ * @author William Convertino
+ */
+public class LSystemCache {
+
+  /**The most memory the cache uses unless another budget is set, in bytes.**/
+  public static final long DEFAULT_BUDGET = 64L << 20;
+
+  //The memory used by each segment of an expansion, and by each expansion itself.
+  private static final long SEGMENT_BYTES = 18;
+  private static final long EXPANSION_BYTES = 128;
+
+  //The most memory the cache may use, and the most that any budget set may allow.
+  private long budget;
+  private long limit;
+  private long usedBytes;
+
+  //The expansions, from the least to the most recently used.
+  private LinkedHashMap<Long, SegmentBuffer> expansions;
+
+  //Describes the symbols and rules the expansions were drawn with.
+  private String mySignature;
+
+  /**
+   * Constructs an empty cache with the default budget.
+   */
+  public LSystemCache() {
+    this.budget = DEFAULT_BUDGET;
+    this.limit = Long.MAX_VALUE;
+    this.expansions = new LinkedHashMap<>(16, 0.75f, true);
+  }
+
+  /**
+   * Sets the most memory the cache may use, dropping expansions until it fits. The budget
+   * is cut to the cache's limit if it is larger.
+   *
+   * @param bytes the budget, in bytes (0 to keep nothing).
+   */
+  public void setBudget(long bytes) {
+    this.budget = Math.min(bytes, limit);
+    evict();
+  }
+
+  /**
+   * Sets the most memory that any budget of the cache may allow, cutting the current budget
+   * to it if it is larger.
+   *
+   * @param bytes the limit, in bytes.
+   */
+  public void setLimit(long bytes) {
+    this.limit = bytes;
+    setBudget(budget);
+  }
+
+  /**
+   * Returns the most memory the cache may use.
+   *
+   * @return the budget, in bytes.
+   */
+  public long getBudget() {
+    return budget;
+  }
+
+  /**
+   * Returns whether an expansion with the given number of segments can be kept.
+   *
+   * @param segments the number of segments in the expansion.
+   * @return true if the expansion fits in the budget.
+   */
+  public boolean fits(long segments) {
+    return segments <= (budget - EXPANSION_BYTES) / SEGMENT_BYTES;
+  }
+
+  /**
+   * Removes every expansion from the cache.
+   */
+  public void clear() {
+    expansions.clear();
+    usedBytes = 0;
+  }
+
+  //Clears the cache if the expansions in it were drawn with other symbols or rules.
+  void validate(String signature) {
+    if (!signature.equals(mySignature)) {
+      clear();
+      mySignature = signature;
+    }
+  }
+
+  //Returns the expansion of a symbol, or null if it is not cached.
+  SegmentBuffer get(char symbol, int depth, boolean penDown) {
+    return expansions.get(key(symbol, depth, penDown));
+  }
+
+  //Keeps the expansion of a symbol, dropping the least recently used ones if needed.
+  void put(char symbol, int depth, boolean penDown, SegmentBuffer expansion) {
+    expansion.trimToSize();
+    SegmentBuffer old = expansions.put(key(symbol, depth, penDown), expansion);
+    if (old != null) {
+      usedBytes -= sizeOf(old);
+    }
+    usedBytes += sizeOf(expansion);
+    evict();
+  }
+
+  //Drops the least recently used expansions until the cache fits in its budget.
+  private void evict() {
+    Iterator<Map.Entry<Long, SegmentBuffer>> eldest = expansions.entrySet().iterator();
+    while (usedBytes > budget && eldest.hasNext()) {
+      usedBytes -= sizeOf(eldest.next().getValue());
+      eldest.remove();
+    }
+  }
+
+  private static long sizeOf(SegmentBuffer expansion) {
+    return EXPANSION_BYTES + expansion.size() * SEGMENT_BYTES;
+  }
+
+  private static long key(char symbol, int depth, boolean penDown) {
+    return ((long) depth << 17) | ((long) symbol << 1) | (penDown ? 1 : 0);
+  }
+
+}
@@ -0,0 +1,118 @@
+package myturtle.programs.program_objects;
+
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * A lazy, depth-first expansion of an L-system pattern. Rather than building the fully
+ * expanded pattern, it walks the rule tree and yields each terminal symbol in order, so the
+ * memory it needs only grows with the depth of the expansion.
+ *
+ * @author William Convertino
+ */
+public class LSystemExpansion implements PrimitiveIterator.OfInt {
+
+  //The rule for each symbol (null if the symbol has no rule).
+  private final SymbolTable<String> myRules;
+
+  //The depth of the expansion.
+  private final int myDepth;
+
+  //The pattern being read at each level of the expansion, and the position within it.
+  private final String[] patternStack;
+  private final int[] positionStack;
+
+  //The current level of the expansion.
+  private int level;
+
+  //The next symbol to return, or -1 if the expansion is finished.
+  private int nextSymbol;
+
+  /**
+   * Constructs a new expansion of the given start pattern.
+   *
+   * @param start the initial pattern.
+   * @param rules a map of each symbol to the pattern that replaces it on each level.
+   * @param depth the number of times the rules are applied.
+   */
+  public LSystemExpansion(String start, Map<String, String> rules, int depth) {
+    this(start, new SymbolTable<>(rules), depth);
+  }
+
+  /**
+   * Constructs a new expansion of the given start pattern, with rules that have already
+   * been put in a table.
+   *
+   * @param start the initial pattern.
+   * @param rules the pattern that replaces each symbol on each level.
+   * @param depth the number of times the rules are applied.
+   */
+  public LSystemExpansion(String start, SymbolTable<String> rules, int depth) {
+    this.myRules = rules;
+    this.myDepth = Math.max(depth, 0);
+    this.patternStack = new String[myDepth + 1];
+    this.positionStack = new int[myDepth + 1];
+    this.patternStack[0] = start == null ? "" : start;
+    this.level = 0;
+    advance();
+  }
+
+  /**
+   * Constructs a copy of another expansion, which yields the same symbols the other one has
+   * left to yield. The two can then be read independently.
+   *
+   * @param other the expansion to copy.
+   */
+  public LSystemExpansion(LSystemExpansion other) {
+    this.myRules = other.myRules;
+    this.myDepth = other.myDepth;
+    this.patternStack = other.patternStack.clone();
+    this.positionStack = other.positionStack.clone();
+    this.level = other.level;
+    this.nextSymbol = other.nextSymbol;
+  }
+
+  //Finds the next terminal symbol of the expansion.
+  private void advance() {
+    while (level >= 0) {
+      String pattern = patternStack[level];
+      if (positionStack[level] >= pattern.length()) {
+        level--;
+        continue;
+      }
+      char symbol = pattern.charAt(positionStack[level]++);
+      String rule = level < myDepth ? myRules.get(symbol) : null;
+      if (rule == null) {
+        nextSymbol = symbol;
+        return;
+      }
+      level++;
+      patternStack[level] = rule;
+      positionStack[level] = 0;
+    }
+    nextSymbol = -1;
+  }
+
+  @Override
+  public boolean hasNext() {
+    return nextSymbol >= 0;
+  }
+
+  /**
+   * Returns the next symbol of the expanded pattern.
+   *
+   * @return the next symbol.
+   * @throws NoSuchElementException if the expansion is finished.
+   */
+  @Override
+  public int nextInt() {
+    if (nextSymbol < 0) {
+      throw new NoSuchElementException();
+    }
+    int symbol = nextSymbol;
+    advance();
+    return symbol;
+  }
+
+}
@@ -7,56 +7,133 @@ import myturtle.commands.Command;
 import myturtle.error_handling.InvalidArgumentException;
 
 /**
- * An extension of the turtle class that can run L-System Visualizer style commands.
+ * An extension of the turtle class that can run L-System Visualizer style commands. Each
+ * step it takes is STEP_LENGTH long, whatever length the program shows its steps at; the
+ * program scales the drawing to that length instead of drawing it again. A move given an
+ * explicit distance is still meant in pixels, so the turtle moves that distance times its
+ * pixel length, which undoes the program's scale as it stood when the move was drawn.
  *
  * @author Luke Josephy
  * @author William Convertino
  */
 public class LSystemTurtle extends DrawingTurtle {
 
-  private String length = "30";
-  private String turnAngle = "60";
+  /**The distance the turtle moves with each step.**/
+  public static final double STEP_LENGTH = 30;
+
+  private double turnAngle = 60;
+
+  //The distance the turtle moves for each pixel of a distance given to fd or bk.
+  private double pixelLength = 1;
+
+  //The turn angle and pixel length when saveState was last called.
+  private double savedTurnAngle;
+  private double savedPixelLength;
 
   /**
    * Constructs a new (hidden) Turtle with a default shape pointed right.
    */
   public LSystemTurtle () {
-    setDisplayShape();
-    this.angle = -90;
+    setAngle(-90);
     this.penDown = true;
   }
 
   /**
-   * Sets the distance that the turtle will move.
+   * Sets the angle that the turtle will turn.
    *
-   * @param length the distance that the turtle will move.
+   * @param turnAngle the angle that the turtle will turn.
    * @return null.
    */
-  public Object setlength(String length) {
-      this.length = length;
-      return null;
+  public Object setangle(String turnAngle) throws NumberFormatException {
+    this.turnAngle = parse(turnAngle);
+    return null;
+  }
+
+  //Returns the angle that the turtle will turn.
+  double getTurnAngle() {
+    return turnAngle;
+  }
+
+  @Override
+  protected void saveState() {
+    super.saveState();
+    savedTurnAngle = turnAngle;
+    savedPixelLength = pixelLength;
+  }
+
+  @Override
+  protected void restoreState() {
+    super.restoreState();
+    turnAngle = savedTurnAngle;
+    pixelLength = savedPixelLength;
   }
 
   /**
-   * Sets the angle that the turtle will turn.
+   * Sets the distance the turtle moves for each pixel of a distance given to fd or bk, so
+   * that a drawing scaled to show its steps at another length still shows those distances
+   * in pixels. Steps taken without a distance are always STEP_LENGTH long.
    *
-   * @param turnAngle the angle that the turtle will turn.
-   * @return null.
+   * @param length the distance moved per pixel, which must be positive.
+   * @throws IllegalArgumentException if the length is not positive.
+   */
+  public void setPixelLength(double length) {
+    if (!(length > 0)) {
+      throw new IllegalArgumentException(String.valueOf(length));
+    }
+    this.pixelLength = length;
+  }
+
+  //Returns the distance the turtle moves for each pixel of a distance given to fd or bk.
+  double getPixelLength() {
+    return pixelLength;
+  }
+
+  /**
+   * Executes the given command, moving a distance given to fd or bk in pixels.
+   *
+   * @param command the command to execute.
+   * @return any objects returned by the executed command.
+   * @throws Exception if the command or its arguments are invalid.
    */
-  public Object setangle(String turnAngle) {
-    this.turnAngle = turnAngle;
+  @Override
+  public Object executeCommand(Command command) throws Exception {
+    if (command != null && command.getArgs() != null && command.getArgs().size() == 1
+        && command.isNumber(0)) {
+      if (command.getCommand().equals("fd")) {
+        forward(command.getNumber(0) * pixelLength);
+        return null;
+      } else if (command.getCommand().equals("bk")) {
+        forward(-command.getNumber(0) * pixelLength);
+        return null;
+      }
+    }
+    return super.executeCommand(command);
+  }
+
+  @Override
+  public Object fd(String distance) throws NumberFormatException {
+    forward(parse(distance) * pixelLength);
+    return null;
+  }
+
+  @Override
+  public Object bk(String distance) throws NumberFormatException {
+    forward(-parse(distance) * pixelLength);
     return null;
   }
 
   public Object fd () {
-    return(this.fd(length));
+    forward(STEP_LENGTH);
+    return null;
   }
   public Object bk () {
-    return(this.bk(length));
+    forward(-STEP_LENGTH);
+    return null;
   }
 
   public Object lt () {
-    return(this.lt(turnAngle));
+    turn(-turnAngle);
+    return null;
   }
 
   public ArrayList<Object> parseCommand(Command command) throws InvalidArgumentException {
@@ -78,6 +155,7 @@ public class LSystemTurtle extends DrawingTurtle {
   }
 
   public Object rt() {
-    return (this.rt(turnAngle));
+    turn(turnAngle);
+    return null;
   }
 }
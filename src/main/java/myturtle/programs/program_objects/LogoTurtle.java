@@ -20,8 +20,7 @@ public class LogoTurtle extends DrawingTurtle {
    * Constructs a new Turtle with a default shape pointed up.
    */
   public LogoTurtle () {
-    setDisplayShape();
-    this.angle = -90;
+    setAngle(-90);
     this.penDown = true;
   }
 
@@ -0,0 +1,867 @@
+package myturtle.programs.program_objects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+import myturtle.commands.Command;
+import myturtle.display.SegmentBuffer;
+
+/**
+ * Renders an L-system pattern on several threads at once. The pattern is split into chunks,
+ * each drawn on a ForkJoinPool worker from the state the turtle would have at its start,
+ * with exactly the arithmetic the turtle itself uses. The chunks are joined back together
+ * in order, giving exactly the segments the turtle would have drawn.
+ *
+ * Where nothing the turtle does is rounded (see below), the starting state of each chunk is
+ * worked out from the summaries of the symbols before it, so the workers do all of the
+ * tracing and drawing. Otherwise the turtle's rounding can only be followed one move at a
+ * time, so the pattern is walked once on the calling thread to trace the starting states,
+ * and the workers only draw. Either way, each chunk's starting state is checked against
+ * where the chunk before it ended, and a chunk that did not start there is drawn again.
+ *
+ * Each symbol's net effect on the turtle (its displacement, change in heading, and pen
+ * state) is also summarized for every depth of the expansion. The summaries give the length
+ * of a pattern and the number of segments it draws without expanding it, and let the drawn
+ * expansion of a symbol be reused wherever the symbol appears, by moving a copy of it to
+ * the turtle's state there. Patterns can be drawn from expansions kept in an LSystemCache,
+ * each of which is built from those one level shallower. Moving a copy only gives exactly
+ * the segments the turtle would draw when nothing is rounded on the way: when the turtle
+ * only ever faces quarter turns, and every point of the pattern is a whole number small
+ * enough to be kept exactly as a float. Other patterns are never drawn from the cache.
+ *
+ * @author William Convertino
+ */
+public class ParallelLSystemRenderer {
+
+  /**The expanded pattern length from which rendering in parallel is worthwhile.**/
+  public static final long PARALLEL_THRESHOLD = 1 << 15;
+
+  //The largest part of the pattern drawn by a single task.
+  private static final long CHUNK_SIZE = 1 << 13;
+
+  //The number of symbols a task draws between checks of the drawing's deadline.
+  private static final int DEADLINE_INTERVAL = 1 << 11;
+
+  //The largest coordinates every whole number up to which is kept exactly as a float, and
+  //as a double.
+  private static final double EXACT_FLOAT_LIMIT = 1 << 24;
+  private static final double EXACT_DOUBLE_LIMIT = 1L << 53;
+
+  //The number of symbols the renderer supports.
+  private static final int ASCII_SYMBOLS = SymbolTable.ASCII_SYMBOLS;
+
+  //The operations a symbol's commands can be reduced to.
+  private static final int MOVE = 0;
+  private static final int TURN = 1;
+  private static final int PEN_UP = 2;
+  private static final int PEN_DOWN = 3;
+
+  //The effect of a summary on the pen.
+  private static final int PEN_UNCHANGED = -1;
+
+  //The operations and operands of each symbol (null if the symbol has no commands).
+  private final int[][] symbolOps;
+  private final double[][] symbolOperands;
+
+  //Whether each symbol's commands could be reduced to operations.
+  private final boolean[] supported;
+
+  //Whether every move is a whole distance.
+  private boolean wholeMoves;
+
+  //The angle every turn is a multiple of (0 if there is none), and each turn in those steps.
+  private long headingStep;
+  private int[][] symbolTurnSteps;
+
+  //The rule for each symbol (null if the symbol has no rule).
+  private final SymbolTable<String> rules;
+
+  //The turtle whose state the pattern is drawn from, and the angle it turned by and the
+  //distance it moved per pixel when the symbols were compiled.
+  private final LSystemTurtle myTurtle;
+  private final double turnAngle;
+  private final double pixelLength;
+
+  //Describes every symbol's operations and rule, so that expansions drawn with other
+  //symbols or rules can be told apart.
+  private final String signature;
+
+  //The summary of each symbol at each depth, the length of its expansion, the total
+  //distance it moves, and the number of segments it draws with the pen starting up and down.
+  private Transform[][] summaries;
+  private long[][] lengths;
+  private double[][] distances;
+  private long[][][] segmentCounts;
+
+  /**
+   * Constructs a new renderer for the given symbols, rules, and turtle.
+   *
+   * @param symbolLibrary the command sequence associated with each symbol.
+   * @param ruleLibrary the rule associated with each symbol.
+   * @param turtle the turtle that draws the pattern.
+   */
+  public ParallelLSystemRenderer(Map<String, List<Command>> symbolLibrary,
+      Map<String, String> ruleLibrary, LSystemTurtle turtle) {
+    this.myTurtle = turtle;
+    this.turnAngle = turtle.getTurnAngle();
+    this.pixelLength = turtle.getPixelLength();
+    this.symbolOps = new int[ASCII_SYMBOLS][];
+    this.symbolOperands = new double[ASCII_SYMBOLS][];
+    this.supported = new boolean[ASCII_SYMBOLS];
+    this.rules = new SymbolTable<>(ruleLibrary);
+    SymbolTable<List<Command>> symbols = new SymbolTable<>(symbolLibrary);
+    for (char c = 0; c < ASCII_SYMBOLS; c++) {
+      supported[c] = compileSymbol(c, symbols.get(c));
+    }
+    findWholeMoves();
+    findHeadingStep();
+    this.signature = getSignature();
+  }
+
+  /**
+   * Returns whether this renderer still draws for the given turtle as it is now. Since the
+   * symbols and rules are read once when the renderer is made, it must be made again if
+   * they change, and this only checks the turtle, its turn angle, and its pixel length.
+   *
+   * @param turtle the turtle to draw the pattern.
+   * @return true if the renderer was made for the turtle as it is now.
+   */
+  public boolean isFor(LSystemTurtle turtle) {
+    return turtle == myTurtle && turtle.getTurnAngle() == turnAngle
+        && turtle.getPixelLength() == pixelLength;
+  }
+
+  //Reduces the given symbol's commands to turtle operations, returning false if one
+  //of the commands can not be reduced.
+  private boolean compileSymbol(char symbol, List<Command> commands) {
+    if (commands == null) {
+      return true;
+    }
+    int[] ops = new int[commands.size()];
+    double[] operands = new double[commands.size()];
+    for (int i = 0; i < commands.size(); i++) {
+      Command c = commands.get(i);
+      if (c.getArgs().size() > 1 || (c.getArgs().size() == 1 && !c.isNumber(0))) {
+        return false;
+      }
+      boolean hasArg = c.getArgs().size() == 1;
+      if (c.getCommand().equals("fd") || c.getCommand().equals("bk")) {
+        ops[i] = MOVE;
+        operands[i] = hasArg ? c.getNumber(0) * pixelLength : LSystemTurtle.STEP_LENGTH;
+        operands[i] *= c.getCommand().equals("bk") ? -1 : 1;
+      } else if (c.getCommand().equals("rt") || c.getCommand().equals("lt")) {
+        ops[i] = TURN;
+        operands[i] = hasArg ? c.getNumber(0) : turnAngle;
+        operands[i] *= c.getCommand().equals("lt") ? -1 : 1;
+      } else if (c.getCommand().equals("pu") && !hasArg) {
+        ops[i] = PEN_UP;
+      } else if (c.getCommand().equals("pd") && !hasArg) {
+        ops[i] = PEN_DOWN;
+      } else {
+        return false;
+      }
+    }
+    symbolOps[symbol] = ops;
+    symbolOperands[symbol] = operands;
+    return true;
+  }
+
+  //Records whether every move of every symbol is a whole distance.
+  private void findWholeMoves() {
+    wholeMoves = true;
+    for (char c = 0; c < ASCII_SYMBOLS; c++) {
+      for (int i = 0; symbolOps[c] != null && i < symbolOps[c].length; i++) {
+        if (symbolOps[c][i] == MOVE && symbolOperands[c][i] != Math.rint(symbolOperands[c][i])) {
+          wholeMoves = false;
+        }
+      }
+    }
+  }
+
+  //Finds the largest whole angle that every turn is a multiple of, so that headings can be
+  //looked up in a DirectionTable, and records each turn as a number of those steps.
+  private void findHeadingStep() {
+    long step = 360;
+    for (char c = 0; c < ASCII_SYMBOLS; c++) {
+      for (int i = 0; symbolOps[c] != null && i < symbolOps[c].length; i++) {
+        double turn = Math.abs(symbolOperands[c][i]);
+        if (symbolOps[c][i] != TURN || turn == 0) {
+          continue;
+        }
+        if (turn != Math.rint(turn) || turn > Integer.MAX_VALUE) {
+          headingStep = 0;
+          return;
+        }
+        step = gcd(step, (long) turn);
+      }
+    }
+    this.headingStep = step;
+    this.symbolTurnSteps = new int[ASCII_SYMBOLS][];
+    for (char c = 0; c < ASCII_SYMBOLS; c++) {
+      if (symbolOps[c] != null) {
+        symbolTurnSteps[c] = new int[symbolOps[c].length];
+        for (int i = 0; i < symbolOps[c].length; i++) {
+          symbolTurnSteps[c][i] = (int) Math.floorMod((long) symbolOperands[c][i] / step, 360 / step);
+        }
+      }
+    }
+  }
+
+  //Returns the greatest common divisor of two whole numbers.
+  private static long gcd(long a, long b) {
+    return b == 0 ? a : gcd(b, a % b);
+  }
+
+  /**
+   * Returns whether every symbol reachable from the start pattern can be drawn by this
+   * renderer. If not, the pattern must be drawn by the turtle itself.
+   *
+   * @param start the initial pattern.
+   * @return true if the pattern can be rendered in parallel.
+   */
+  public boolean canRender(String start) {
+    boolean[] reached = new boolean[ASCII_SYMBOLS];
+    List<String> toVisit = new ArrayList<>();
+    toVisit.add(start);
+    while (!toVisit.isEmpty()) {
+      String pattern = toVisit.remove(toVisit.size() - 1);
+      for (int i = 0; i < pattern.length(); i++) {
+        char c = pattern.charAt(i);
+        if (c >= ASCII_SYMBOLS || !supported[c]) {
+          return false;
+        }
+        if (!reached[c]) {
+          reached[c] = true;
+          if (rules.get(c) != null) {
+            toVisit.add(rules.get(c));
+          }
+        }
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Returns the number of symbols in the fully expanded pattern.
+   *
+   * @param start the initial pattern.
+   * @param depth the depth of the expansion.
+   * @return the length of the expanded pattern (saturating at Long.MAX_VALUE).
+   */
+  public long getPatternLength(String start, int depth) {
+    summarize(depth);
+    long length = 0;
+    for (int i = 0; i < start.length(); i++) {
+      char c = start.charAt(i);
+      length = saturatedAdd(length, c < ASCII_SYMBOLS ? lengths[depth][c] : 1);
+    }
+    return length;
+  }
+
+  //Computes the summary and expanded length of every symbol up to the given depth.
+  private void summarize(int depth) {
+    if (summaries != null && summaries.length > depth) {
+      return;
+    }
+    summaries = new Transform[depth + 1][ASCII_SYMBOLS];
+    lengths = new long[depth + 1][ASCII_SYMBOLS];
+    distances = new double[depth + 1][ASCII_SYMBOLS];
+    segmentCounts = new long[depth + 1][ASCII_SYMBOLS][2];
+    for (char c = 0; c < ASCII_SYMBOLS; c++) {
+      summaries[0][c] = summarizeSymbol(c);
+      lengths[0][c] = 1;
+      distances[0][c] = measureDistance(c);
+      segmentCounts[0][c][0] = countSegments(c, false);
+      segmentCounts[0][c][1] = countSegments(c, true);
+    }
+    for (int d = 1; d <= depth; d++) {
+      for (char c = 0; c < ASCII_SYMBOLS; c++) {
+        String rule = rules.get(c);
+        if (rule == null) {
+          summaries[d][c] = summaries[d - 1][c];
+          lengths[d][c] = 1;
+          distances[d][c] = distances[d - 1][c];
+          segmentCounts[d][c] = segmentCounts[d - 1][c];
+          continue;
+        }
+        Transform t = Transform.IDENTITY;
+        long length = 0;
+        double distance = 0;
+        for (int i = 0; i < rule.length(); i++) {
+          char r = rule.charAt(i);
+          if (r < ASCII_SYMBOLS) {
+            t = t.then(summaries[d - 1][r]);
+            length = saturatedAdd(length, lengths[d - 1][r]);
+            distance += distances[d - 1][r];
+          }
+        }
+        summaries[d][c] = t;
+        lengths[d][c] = length;
+        distances[d][c] = distance;
+        for (int pen = 0; pen < 2; pen++) {
+          segmentCounts[d][c][pen] = countSegments(rule, d - 1, pen == 1);
+        }
+      }
+    }
+  }
+
+  //Adds up the distances a symbol's own operations move.
+  private double measureDistance(char symbol) {
+    double distance = 0;
+    for (int i = 0; symbolOps[symbol] != null && i < symbolOps[symbol].length; i++) {
+      if (symbolOps[symbol][i] == MOVE) {
+        distance += Math.abs(symbolOperands[symbol][i]);
+      }
+    }
+    return distance;
+  }
+
+  //Counts the segments a symbol's own operations draw, with the pen starting as given.
+  private long countSegments(char symbol, boolean penDown) {
+    long count = 0;
+    for (int i = 0; symbolOps[symbol] != null && i < symbolOps[symbol].length; i++) {
+      if (symbolOps[symbol][i] == MOVE && penDown) {
+        count++;
+      } else if (symbolOps[symbol][i] == PEN_UP || symbolOps[symbol][i] == PEN_DOWN) {
+        penDown = symbolOps[symbol][i] == PEN_DOWN;
+      }
+    }
+    return count;
+  }
+
+  //Counts the segments a pattern draws at the given depth, with the pen starting as given.
+  private long countSegments(String pattern, int depth, boolean penDown) {
+    long count = 0;
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      if (c < ASCII_SYMBOLS) {
+        count = saturatedAdd(count, segmentCounts[depth][c][penDown ? 1 : 0]);
+        int pen = summaries[depth][c].pen;
+        penDown = pen == PEN_UNCHANGED ? penDown : pen == 1;
+      }
+    }
+    return count;
+  }
+
+  //Summarizes the operations of a single symbol.
+  private Transform summarizeSymbol(char symbol) {
+    Transform t = Transform.IDENTITY;
+    int[] ops = symbolOps[symbol];
+    if (ops == null) {
+      return t;
+    }
+    for (int i = 0; i < ops.length; i++) {
+      double operand = symbolOperands[symbol][i];
+      if (ops[i] == MOVE) {
+        t = t.then(new Transform(operand, 0, 0, PEN_UNCHANGED));
+      } else if (ops[i] == TURN) {
+        t = t.then(new Transform(0, 0, operand, PEN_UNCHANGED));
+      } else {
+        t = t.then(new Transform(0, 0, 0, ops[i] == PEN_DOWN ? 1 : 0));
+      }
+    }
+    return t;
+  }
+
+  //Adds two lengths without overflowing.
+  private static long saturatedAdd(long a, long b) {
+    long sum = a + b;
+    return sum < 0 ? Long.MAX_VALUE : sum;
+  }
+
+  /**
+   * Draws the expanded pattern in parallel, starting from the turtle's current state. Each
+   * chunk of the pattern is handed to a ForkJoinPool worker from the exact state the turtle
+   * would have there, which is worked out from the summaries of the symbols before it if
+   * that rounds nothing, and traced on this thread otherwise. The chunks are then joined in
+   * order, so the turtle's drawing gets exactly the segments it would have drawn itself, and
+   * the turtle is left in the state it would have had after drawing the pattern itself.
+   *
+   * @param start the initial pattern.
+   * @param depth the depth of the expansion.
+   * @param deadline the deadline of the drawing, checked before each chunk is drawn.
+   * @throws IllegalStateException if the deadline passes before the pattern is drawn.
+   */
+  public void render(String start, int depth, Deadline deadline) {
+    summarize(depth);
+    Pen pen = new Pen(myTurtle.getX(), myTurtle.getY(), myTurtle.angle, myTurtle.penDown,
+        DirectionTable.forStep(myTurtle.angle, headingStep));
+    List<RenderTask> tasks = new ArrayList<>();
+    if (isExact(start, depth, EXACT_DOUBLE_LIMIT)) {
+      splitIntoChunks(start, depth, new State(pen.x, pen.y, pen.angle, pen.penDown), pen,
+          deadline, tasks);
+    } else {
+      traceChunks(start, depth, new Pen(pen), deadline, tasks);
+    }
+    for (RenderTask task : tasks) {
+      deadline.check();
+      if (task.startsFrom(pen)) {
+        task.joinTo(myTurtle.getSegments());
+        pen = task.getEndPen();
+      } else {
+        task.drawFrom(pen, myTurtle.getSegments());
+      }
+    }
+    myTurtle.setState(pen.x, pen.y, pen.angle, pen.penDown);
+  }
+
+  //Hands each chunk of the pattern to a worker from the state the turtle would have at its
+  //start, working the states out from the summaries of the symbols before each chunk. A
+  //symbol whose expansion is longer than a chunk is split up in the same way, so the only
+  //work done here is in proportion to the number of chunks.
+  private void splitIntoChunks(String pattern, int depth, State state, Pen start,
+      Deadline deadline, List<RenderTask> tasks) {
+    int runStart = 0;
+    long runLength = 0;
+    State runState = state;
+    for (int i = 0; i < pattern.length(); i++) {
+      char c = pattern.charAt(i);
+      long length = lengths[depth][c];
+      String rule = rules.get(c);
+      if (runLength > 0 && (runLength + length > CHUNK_SIZE
+          || (length > CHUNK_SIZE && rule != null))) {
+        forkChunk(pattern.substring(runStart, i), depth, runLength, runState, start, deadline,
+            tasks);
+        runLength = 0;
+      }
+      if (length > CHUNK_SIZE && rule != null) {
+        splitIntoChunks(rule, depth - 1, state, start, deadline, tasks);
+      } else {
+        if (runLength == 0) {
+          runStart = i;
+          runState = state;
+        }
+        runLength += length;
+      }
+      state = state.apply(summaries[depth][c]);
+    }
+    if (runLength > 0) {
+      forkChunk(pattern.substring(runStart), depth, runLength, runState, start, deadline, tasks);
+    }
+  }
+
+  //Hands the expansion of part of a pattern to a worker, starting from the given state.
+  private void forkChunk(String part, int depth, long length, State state, Pen start,
+      Deadline deadline, List<RenderTask> tasks) {
+    deadline.check();
+    Pen pen = start.movedTo(state);
+    RenderTask task = new RenderTask(new LSystemExpansion(part, rules, depth), length, pen,
+        deadline);
+    task.fork();
+    tasks.add(task);
+  }
+
+  //Hands each chunk of the pattern to a worker from the state the turtle would have at its
+  //start, tracing the turtle's state through the whole pattern to find them.
+  private void traceChunks(String start, int depth, Pen pen, Deadline deadline,
+      List<RenderTask> tasks) {
+    LSystemExpansion symbols = new LSystemExpansion(start, rules, depth);
+    while (symbols.hasNext()) {
+      deadline.check();
+      RenderTask task = new RenderTask(new LSystemExpansion(symbols), CHUNK_SIZE, new Pen(pen),
+          deadline);
+      task.fork();
+      tasks.add(task);
+      for (int i = 0; i < CHUNK_SIZE && symbols.hasNext(); i++) {
+        pen.draw(symbols.nextInt(), null);
+      }
+    }
+  }
+
+  /**
+   * Draws the expanded pattern from the drawn expansions of its symbols kept in the given
+   * cache, starting from the turtle's current state. Any expansion that is not cached is
+   * built from the expansions one level shallower, which are built or found the same way.
+   * The pattern is only drawn if moving the expansions into place rounds nothing, so the
+   * turtle's drawing gets exactly the segments it would have drawn itself, and the turtle is
+   * left in exactly the state it would have had after drawing the pattern itself.
+   *
+   * @param start the initial pattern.
+   * @param depth the depth of the expansion.
+   * @param cache the cache of expansions, which is cleared if they were drawn with other
+   *     symbols or rules.
+   * @param deadline the deadline of the drawing, checked before each expansion is drawn.
+   * @return false, having drawn nothing, if the pattern is too large for the cache or can not
+   *     be drawn from it exactly.
+   * @throws IllegalStateException if the deadline passes before the pattern is drawn.
+   */
+  public boolean renderCached(String start, int depth, LSystemCache cache, Deadline deadline) {
+    summarize(depth);
+    if (!isExact(start, depth, EXACT_FLOAT_LIMIT)
+        || !cache.fits(countSegments(start, depth, myTurtle.penDown))) {
+      return false;
+    }
+    cache.validate(signature);
+    SegmentBuffer segments = myTurtle.getSegments();
+    State state = new State(myTurtle.getX(), myTurtle.getY(), myTurtle.angle, myTurtle.penDown);
+    for (int i = 0; i < start.length(); i++) {
+      char c = start.charAt(i);
+      deadline.check();
+      SegmentBuffer expansion = getExpansion(c, depth, state.penDown, cache, deadline);
+      segments.addTransformed(expansion, DirectionTable.cos(state.angle),
+          DirectionTable.sin(state.angle), state.x, state.y);
+      state = state.apply(summaries[depth][c]);
+    }
+    myTurtle.setState(state.x, state.y, state.angle, state.penDown);
+    return true;
+  }
+
+  //Returns whether drawing the pattern rounds nothing, so that its summaries and moved
+  //copies of its expansions give exactly the points the turtle reaches. When the turtle only
+  //faces quarter turns, whose unit vectors are exact, and starts and moves by whole numbers,
+  //every point it reaches is a whole number no further from the origin than its start plus
+  //the distance it moves. That holds if the distance stays within the given limit of whole
+  //numbers kept exactly, which is that of a float where the points are kept as segments.
+  private boolean isExact(String start, int depth, double limit) {
+    double x = myTurtle.getX();
+    double y = myTurtle.getY();
+    if (headingStep == 0 || headingStep % 90 != 0 || myTurtle.angle % 90 != 0 || !wholeMoves
+        || x != Math.rint(x) || y != Math.rint(y)) {
+      return false;
+    }
+    double reach = Math.max(Math.abs(x), Math.abs(y));
+    for (int i = 0; i < start.length(); i++) {
+      char c = start.charAt(i);
+      if (c < ASCII_SYMBOLS) {
+        reach += distances[depth][c];
+      }
+    }
+    return reach <= limit;
+  }
+
+  //Returns the drawn expansion of a symbol in its own frame, building it from the
+  //expansions one level shallower if it is not cached.
+  private SegmentBuffer getExpansion(char symbol, int depth, boolean penDown, LSystemCache cache,
+      Deadline deadline) {
+    if (rules.get(symbol) == null) {
+      depth = 0;
+    }
+    SegmentBuffer expansion = cache.get(symbol, depth, penDown);
+    if (expansion != null) {
+      return expansion;
+    }
+    deadline.check();
+    expansion = new SegmentBuffer();
+    if (depth == 0) {
+      drawSymbol(symbol, penDown, expansion);
+    } else {
+      State state = new State(0, 0, 0, penDown);
+      String rule = rules.get(symbol);
+      for (int i = 0; i < rule.length(); i++) {
+        char c = rule.charAt(i);
+        SegmentBuffer part = getExpansion(c, depth - 1, state.penDown, cache, deadline);
+        expansion.addTransformed(part, DirectionTable.cos(state.angle),
+            DirectionTable.sin(state.angle), state.x, state.y);
+        state = state.apply(summaries[depth - 1][c]);
+      }
+    }
+    cache.put(symbol, depth, penDown, expansion);
+    return expansion;
+  }
+
+  //Draws a symbol's own operations from the origin, facing an angle of 0.
+  private void drawSymbol(char symbol, boolean penDown, SegmentBuffer segments) {
+    double x = 0;
+    double y = 0;
+    double angle = 0;
+    for (int i = 0; symbolOps[symbol] != null && i < symbolOps[symbol].length; i++) {
+      double operand = symbolOperands[symbol][i];
+      if (symbolOps[symbol][i] == MOVE) {
+        double newX = x + operand * DirectionTable.cos(angle);
+        double newY = y + operand * DirectionTable.sin(angle);
+        if (penDown) {
+          segments.add(x, y, newX, newY, SegmentBuffer.DEFAULT_STYLE);
+        }
+        x = newX;
+        y = newY;
+      } else if (symbolOps[symbol][i] == TURN) {
+        angle += operand;
+      } else {
+        penDown = symbolOps[symbol][i] == PEN_DOWN;
+      }
+    }
+  }
+
+  //Describes every symbol's operations and rule.
+  private String getSignature() {
+    StringBuilder signature = new StringBuilder();
+    for (char c = 0; c < ASCII_SYMBOLS; c++) {
+      if (symbolOps[c] != null || rules.get(c) != null) {
+        signature.append(c).append(Arrays.toString(symbolOps[c]))
+            .append(Arrays.toString(symbolOperands[c])).append(rules.get(c)).append('\n');
+      }
+    }
+    return signature.toString();
+  }
+
+  //Receives each segment a Pen draws, returning false to stop the pen.
+  private interface Strokes {
+    boolean add(double x1, double y1, double x2, double y2);
+  }
+
+  //Draws symbols with exactly the arithmetic an LSystemTurtle uses, so that drawing part of
+  //the pattern from the turtle's state there gives the segments the turtle would draw. If
+  //every turn is a multiple of the heading step, headings are looked up in a table.
+  private class Pen {
+
+    double x;
+    double y;
+    double angle;
+    boolean penDown;
+
+    //The table of headings (null if there is none), and the heading the pen is facing.
+    final DirectionTable directions;
+    int heading;
+    double headingX;
+    double headingY;
+
+    Pen(double x, double y, double angle, boolean penDown, DirectionTable directions) {
+      this.x = x;
+      this.y = y;
+      this.angle = angle;
+      this.penDown = penDown;
+      this.directions = directions;
+      this.headingX = DirectionTable.cos(angle);
+      this.headingY = DirectionTable.sin(angle);
+    }
+
+    Pen(Pen other) {
+      this.x = other.x;
+      this.y = other.y;
+      this.angle = other.angle;
+      this.penDown = other.penDown;
+      this.directions = other.directions;
+      this.heading = other.heading;
+      this.headingX = other.headingX;
+      this.headingY = other.headingY;
+    }
+
+    //Returns a pen in the given state, which this pen reached by only turning in whole steps
+    //of its table of headings.
+    Pen movedTo(State state) {
+      Pen pen = new Pen(state.x, state.y, state.angle, state.penDown, directions);
+      if (directions != null) {
+        long steps = Math.round((state.angle - angle) / headingStep);
+        pen.heading = directions.turn(heading, Math.floorMod(steps, directions.size()));
+        pen.headingX = directions.getX(pen.heading);
+        pen.headingY = directions.getY(pen.heading);
+      }
+      return pen;
+    }
+
+    //Returns whether this pen is in exactly the same state as another one, down to the sign
+    //of a zero.
+    boolean sameAs(Pen other) {
+      return Double.compare(x, other.x) == 0 && Double.compare(y, other.y) == 0
+          && Double.compare(angle, other.angle) == 0 && penDown == other.penDown
+          && heading == other.heading && Double.compare(headingX, other.headingX) == 0
+          && Double.compare(headingY, other.headingY) == 0;
+    }
+
+    //Runs a symbol's operations, passing each segment drawn to the given strokes (if any).
+    //Returns false, leaving the symbol unfinished, if the strokes ask the pen to stop.
+    boolean draw(int symbol, Strokes strokes) {
+      int[] ops = symbolOps[symbol];
+      for (int i = 0; ops != null && i < ops.length; i++) {
+        if (ops[i] == MOVE) {
+          double operand = symbolOperands[symbol][i];
+          double newX = x + operand * headingX;
+          double newY = y + operand * headingY;
+          if (penDown && strokes != null && !strokes.add(x, y, newX, newY)) {
+            return false;
+          }
+          x = newX;
+          y = newY;
+        } else if (ops[i] == TURN) {
+          angle += symbolOperands[symbol][i];
+          if (directions != null) {
+            heading = directions.turn(heading, symbolTurnSteps[symbol][i]);
+            headingX = directions.getX(heading);
+            headingY = directions.getY(heading);
+          } else {
+            headingX = DirectionTable.cos(angle);
+            headingY = DirectionTable.sin(angle);
+          }
+        } else {
+          penDown = ops[i] == PEN_DOWN;
+        }
+      }
+      return true;
+    }
+  }
+
+  //Draws one chunk of the pattern, from the pen's state at its start, into its own buffer.
+  private class RenderTask extends RecursiveTask<SegmentBuffer> implements Strokes {
+
+    private static final long serialVersionUID = 1L;
+
+    private final LSystemExpansion start;
+    private final long length;
+    private final Pen startPen;
+    private final Deadline deadline;
+
+    //The pen at the end of the chunk.
+    private Pen endPen;
+
+    //The chunk's drawing, and the index of the stroke that started each of its segments.
+    private SegmentBuffer segments;
+    private int[] segmentStarts;
+    private int strokeCount;
+
+    RenderTask(LSystemExpansion start, long length, Pen startPen, Deadline deadline) {
+      this.start = start;
+      this.length = length;
+      this.startPen = startPen;
+      this.deadline = deadline;
+    }
+
+    @Override
+    protected SegmentBuffer compute() {
+      segments = new SegmentBuffer();
+      segmentStarts = new int[16];
+      LSystemExpansion symbols = new LSystemExpansion(start);
+      Pen pen = new Pen(startPen);
+      for (long i = 0; i < length && symbols.hasNext(); i++) {
+        if (i % DEADLINE_INTERVAL == 0) {
+          deadline.check();
+        }
+        pen.draw(symbols.nextInt(), this);
+      }
+      endPen = pen;
+      return segments;
+    }
+
+    //Returns whether the chunk was drawn from exactly the given state.
+    boolean startsFrom(Pen pen) {
+      return startPen.sameAs(pen);
+    }
+
+    //Returns the pen at the end of the chunk, once the chunk has been drawn.
+    Pen getEndPen() {
+      join();
+      return endPen;
+    }
+
+    //Draws the chunk straight into the given drawing from the given state, in place of
+    //where it was drawn from, and moves the pen to the end of the chunk.
+    void drawFrom(Pen pen, SegmentBuffer drawing) {
+      LSystemExpansion symbols = new LSystemExpansion(start);
+      Strokes strokes = (x1, y1, x2, y2) -> {
+        drawing.add(x1, y1, x2, y2, SegmentBuffer.DEFAULT_STYLE);
+        return true;
+      };
+      for (long i = 0; i < length && symbols.hasNext(); i++) {
+        if (i % DEADLINE_INTERVAL == 0) {
+          deadline.check();
+        }
+        pen.draw(symbols.nextInt(), strokes);
+      }
+    }
+
+    @Override
+    public boolean add(double x1, double y1, double x2, double y2) {
+      int size = segments.size();
+      segments.add(x1, y1, x2, y2, SegmentBuffer.DEFAULT_STYLE);
+      if (segments.size() > size) {
+        if (size == segmentStarts.length) {
+          segmentStarts = Arrays.copyOf(segmentStarts, size * 2);
+        }
+        segmentStarts[size] = strokeCount;
+      }
+      strokeCount++;
+      return true;
+    }
+
+    //Adds the chunk's segments to the given drawing as the turtle would have drawn them. A
+    //stroke that the turtle would have merged into the drawing's last segment changes how
+    //the strokes after it merge, so the chunk is drawn again, stroke by stroke, until one of
+    //its segments starts with a stroke the drawing would not merge. From there on the
+    //drawing and the chunk agree, so the rest of the chunk is copied as it is.
+    void joinTo(SegmentBuffer drawing) {
+      SegmentBuffer chunk = join();
+      if (chunk.size() == 0) {
+        return;
+      }
+      LSystemExpansion symbols = new LSystemExpansion(start);
+      Pen pen = new Pen(startPen);
+      Strokes redraw = new Strokes() {
+        private int stroke;
+        private int next;
+
+        @Override
+        public boolean add(double x1, double y1, double x2, double y2) {
+          if (next < chunk.size() && segmentStarts[next] == stroke
+              && !drawing.continuesLast(x1, y1, x2, y2, SegmentBuffer.DEFAULT_STYLE)) {
+            drawing.copyFrom(chunk, next);
+            return false;
+          }
+          drawing.add(x1, y1, x2, y2, SegmentBuffer.DEFAULT_STYLE);
+          if (next < chunk.size() && segmentStarts[next] == stroke) {
+            next++;
+          }
+          stroke++;
+          return true;
+        }
+      };
+      for (long i = 0; i < length && symbols.hasNext(); i++) {
+        if (!pen.draw(symbols.nextInt(), redraw)) {
+          return;
+        }
+      }
+    }
+  }
+
+  //The net effect of part of a pattern on the turtle, relative to a turtle at the origin
+  //facing an angle of 0.
+  private static class Transform {
+
+    static final Transform IDENTITY = new Transform(0, 0, 0, PEN_UNCHANGED);
+
+    final double dx;
+    final double dy;
+    final double turn;
+    final int pen;
+
+    Transform(double dx, double dy, double turn, int pen) {
+      this.dx = dx;
+      this.dy = dy;
+      this.turn = turn;
+      this.pen = pen;
+    }
+
+    //Returns the effect of applying this transform followed by the given one.
+    Transform then(Transform next) {
+      double cos = DirectionTable.cos(turn);
+      double sin = DirectionTable.sin(turn);
+      return new Transform(dx + next.dx * cos - next.dy * sin, dy + next.dx * sin + next.dy * cos,
+          turn + next.turn, next.pen == PEN_UNCHANGED ? pen : next.pen);
+    }
+  }
+
+  //The state of the turtle at some point in the pattern.
+  private static class State {
+
+    final double x;
+    final double y;
+    final double angle;
+    final boolean penDown;
+
+    State(double x, double y, double angle, boolean penDown) {
+      this.x = x;
+      this.y = y;
+      this.angle = angle;
+      this.penDown = penDown;
+    }
+
+    //Returns the state after applying the given transform.
+    State apply(Transform t) {
+      double cos = DirectionTable.cos(angle);
+      double sin = DirectionTable.sin(angle);
+      return new State(x + t.dx * cos - t.dy * sin, y + t.dx * sin + t.dy * cos,
+          angle + t.turn, t.pen == PEN_UNCHANGED ? penDown : t.pen == 1);
+    }
+  }
+
+}
@@ -0,0 +1,62 @@
+package myturtle.programs.program_objects;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * A lookup of the value associated with each single-character symbol of an L-system, such
+ * as its rule or its commands. ASCII symbols, which are almost all of the symbols used, are
+ * looked up in an array, and every other symbol in a map.
+ *
+ * @param <T> the type of value associated with each symbol.
+ * @author William Convertino
+ */
+public class SymbolTable<T> {
+
+  /**The number of symbols looked up in an array.**/
+  public static final int ASCII_SYMBOLS = 128;
+
+  //The value of each ASCII symbol (null if the symbol has none), which are all Ts.
+  private final Object[] asciiValues;
+
+  //The value of every other symbol.
+  private final Map<Character, T> otherValues;
+
+  /**
+   * Constructs a new table of the symbols in the given library. Keys that are not a single
+   * character are left out.
+   *
+   * @param library a map of each symbol to its value.
+   */
+  public SymbolTable(Map<String, ? extends T> library) {
+    this.asciiValues = new Object[ASCII_SYMBOLS];
+    this.otherValues = new HashMap<>();
+    for (Map.Entry<String, ? extends T> entry : library.entrySet()) {
+      if (entry.getKey().length() != 1) {
+        continue;
+      }
+      char symbol = entry.getKey().charAt(0);
+      if (symbol < ASCII_SYMBOLS) {
+        asciiValues[symbol] = entry.getValue();
+      } else {
+        otherValues.put(symbol, entry.getValue());
+      }
+    }
+  }
+
+  /**
+   * Returns the value associated with the given symbol.
+   *
+   * @param symbol the symbol to look up.
+   * @return the value of the symbol, or null if it has none.
+   */
+  public T get(int symbol) {
+    if (symbol < ASCII_SYMBOLS) {
+      @SuppressWarnings("unchecked")
+      T value = (T) asciiValues[symbol];
+      return value;
+    }
+    return otherValues.get((char) symbol);
+  }
+
+}
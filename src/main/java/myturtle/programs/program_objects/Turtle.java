@@ -2,31 +2,67 @@ package myturtle.programs.program_objects;
 
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Polygon;
+import javafx.scene.transform.Rotate;
 import myturtle.commands.CommandReader;
+import myturtle.display.DisplayRenderer;
+import myturtle.display.SegmentBuffer;
 
 /**
  *  This class acts as an all-purpose drawing agent. When given commands, it can move, rotate,
- *  draw, and more.
+ *  draw, and more. Its state is kept in plain fields, and its JavaFX shape is only created
+ *  when it is first displayed (and then synchronized with that state once per frame), so
+ *  turtles can run without a display.
  *
  * @author William Convertino
  */
 public class Turtle extends CommandReader {
 
-  //The shape representing the Turtle that is to be displayed.
+  //The x and y coordinates of the turtle's home.
+  public static final double HOME_X = 320;
+  public static final double HOME_Y = 270;
+
+  //The angle at which the turtle's shape is drawn without any rotation.
+  private static final int SHAPE_ANGLE = -90;
+
+  //The shape representing the Turtle that is to be displayed (null until it is needed),
+  //and the single rotation that points it in the turtle's direction.
   protected Polygon myDisplayShape;
+  private Rotate myRotation;
+
+  //The position of the turtle.
+  protected double xPos;
+  protected double yPos;
 
   //The angle (in degrees) of the turtle.
-  protected int angle;
+  protected double angle;
+
+  //The unit vector the turtle is facing, updated whenever its angle changes.
+  protected double headingX;
+  protected double headingY;
+
+  //Whether the turtle's shape is visible.
+  protected boolean visible;
+
+  //The segments drawn by the turtle.
+  protected SegmentBuffer mySegments;
+
+  //The turtle's state when saveState was last called.
+  private double savedX;
+  private double savedY;
+  private double savedAngle;
+  private boolean savedVisible;
 
   /**
    * Constructs a new Turtle with a default shape pointed up.
    */
   public Turtle () {
-    this.myDisplayShape = new Polygon();
-    this.angle = -90;
-    setDisplayShape();
+    setAngle(SHAPE_ANGLE);
+    this.visible = true;
+    this.mySegments = new SegmentBuffer();
+    home();
   }
-  //Creates a default display shape for the turtle.
+
+  //Creates a default display shape for the turtle, matching its current state.
   protected void setDisplayShape() {
     myDisplayShape = new Polygon();
     myDisplayShape.getPoints().addAll(2.0, 2.0,
@@ -34,27 +70,140 @@ public class Turtle extends CommandReader {
         12.0, 2.0);
     myDisplayShape.setScaleX(1.0);
     myDisplayShape.setScaleY(1.0);
-    home();
     myDisplayShape.setFill(Color.TRANSPARENT);
-    myDisplayShape.setStroke(Color.BLUE);
+    myRotation = new Rotate();
+    myDisplayShape.getTransforms().add(myRotation);
+    //The shape is placed where the turtle is shown, so it keeps its size at any scale.
+    DisplayRenderer.setScaledWithDrawing(myDisplayShape, false);
+    syncDisplayShape();
+  }
+
+  /**
+   * Updates the turtle's display shape (if it has one) to match its position, angle, and
+   * visibility. The turtle's state changes without touching the shape, so this only needs
+   * to be called once before each frame is drawn.
+   */
+  public void syncDisplayShape() {
+    syncDisplayShape(xPos, yPos, angle, visible);
   }
 
   /**
-   * Returns the display shape of this Turtle.
+   * Updates the turtle's display shape (if it has one) to match the given state, which
+   * was read from the turtle on the thread running it.
+   *
+   * @param x the x coordinate of the turtle.
+   * @param y the y coordinate of the turtle.
+   * @param angle the angle (in degrees) of the turtle.
+   * @param visible whether the turtle is shown.
+   */
+  public void syncDisplayShape(double x, double y, double angle, boolean visible) {
+    if (myDisplayShape == null) {
+      return;
+    }
+    myDisplayShape.setLayoutX(x);
+    myDisplayShape.setLayoutY(y);
+    myRotation.setAngle((angle - SHAPE_ANGLE) % 360);
+    myDisplayShape.setStroke(visible ? Color.BLUE : Color.TRANSPARENT);
+  }
+
+  /**
+   * Returns the display shape of this Turtle, creating it if it does not exist yet.
    *
    * @return the display shape of this Turtle.
    */
   public Polygon getDisplayShape () {
+    if (myDisplayShape == null) {
+      setDisplayShape();
+    }
     return myDisplayShape;
   }
 
+  //Moves the turtle to the given position.
+  protected void moveTo(double x, double y) {
+    this.xPos = x;
+    this.yPos = y;
+  }
+
+  /**
+   * Returns the x coordinate of this Turtle.
+   *
+   * @return the x coordinate.
+   */
+  public double getX () {
+    return xPos;
+  }
+
+  /**
+   * Returns the y coordinate of this Turtle.
+   *
+   * @return the y coordinate.
+   */
+  public double getY () {
+    return yPos;
+  }
+
+  /**
+   * Returns the angle of this Turtle.
+   *
+   * @return the angle (in degrees).
+   */
+  public double getAngle () {
+    return angle;
+  }
+
+  /**
+   * Returns whether this Turtle is shown.
+   *
+   * @return true if the turtle is visible.
+   */
+  public boolean isVisible () {
+    return visible;
+  }
+
+  /**
+   * Returns the segments drawn by this Turtle.
+   *
+   * @return the buffer of segments drawn by this Turtle.
+   */
+  public SegmentBuffer getSegments () {
+    return mySegments;
+  }
+
+  //Makes the turtle draw into the given buffer, such as the drawing of another turtle.
+  void setSegments(SegmentBuffer segments) {
+    this.mySegments = segments;
+  }
+
+  //Saves everything about the turtle that its commands can change, other than its drawing,
+  //so that restoreState can undo a command. Subclasses with state of their own save it too.
+  protected void saveState() {
+    savedX = xPos;
+    savedY = yPos;
+    savedAngle = angle;
+    savedVisible = visible;
+  }
+
+  //Puts back the state saved by the last call to saveState.
+  protected void restoreState() {
+    moveTo(savedX, savedY);
+    setAngle(savedAngle);
+    visible = savedVisible;
+  }
+
   /**
    * Sets the angle of the turtle.
    *
    * @param angle the angle at which the turtle should face.
    */
-  public void setAngle(int angle) {
+  public void setAngle(double angle) {
     this.angle = angle;
+    updateHeading();
+  }
+
+  //Recomputes the heading vector from the turtle's angle.
+  protected void updateHeading() {
+    headingX = DirectionTable.cos(angle);
+    headingY = DirectionTable.sin(angle);
   }
 
   /**
@@ -63,8 +212,7 @@ public class Turtle extends CommandReader {
    * @return null.
    */
   public Object home() {
-    myDisplayShape.setLayoutX(320);
-    myDisplayShape.setLayoutY(270);
+    moveTo(HOME_X, HOME_Y);
     return null;
   }
 
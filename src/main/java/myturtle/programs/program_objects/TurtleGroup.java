@@ -0,0 +1,241 @@
+package myturtle.programs.program_objects;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import myturtle.display.SegmentBuffer;
+
+/**
+ * The turtles of a program, and which of them the program's commands are sent to. Every
+ * turtle draws into the drawing of the first one, so the program has a single drawing no
+ * matter how many turtles it has.
+ *
+ * A command sent to many turtles at once is run on them in parallel, a chunk of turtles
+ * per ForkJoinPool worker. Each chunk draws into a buffer of its own, and the chunks are
+ * added to the drawing in order afterwards, so the drawing is exactly what it would have
+ * been had the turtles run one after another. That holds when the command fails as well:
+ * the turtles up to the first one it fails on are left as they are, with their drawing
+ * added, while every turtle after it is put back as it was and draws nothing, just as if
+ * the turtles had run one after another and stopped at the failure.
+ *
+ * @author William Convertino
+ */
+public class TurtleGroup {
+
+  /**Sends commands to every turtle, rather than to a single one.**/
+  public static final int ALL = -1;
+
+  /**The fewest turtles a command is run on in parallel.**/
+  public static final int PARALLEL_THRESHOLD = 1024;
+
+  //The number of turtles run one after another by each worker.
+  private static final int CHUNK_SIZE = 256;
+
+  //The turtles, in the order they were created. The array is replaced whenever turtles are
+  //added or removed, so another thread can read it at any time.
+  private volatile Turtle[] myTurtles;
+
+  //The index of the turtle that commands are sent to, or ALL.
+  private int told;
+
+  /**
+   * A command to run on a turtle.
+   */
+  public interface TurtleCommand {
+
+    /**
+     * Runs the command on the given turtle.
+     *
+     * @param turtle the turtle to run the command on.
+     * @return any display elements made by the command.
+     * @throws Exception if the command is invalid.
+     */
+    Object run(Turtle turtle) throws Exception;
+  }
+
+  /**
+   * Constructs a group holding a single turtle, which commands are sent to.
+   *
+   * @param first the first turtle, whose drawing every turtle draws into.
+   */
+  public TurtleGroup(Turtle first) {
+    this.myTurtles = new Turtle[] {first};
+    this.told = 0;
+  }
+
+  /**
+   * Adds turtles to the group. They draw into the first turtle's drawing.
+   *
+   * @param turtles the turtles to add.
+   */
+  public void addAll(List<Turtle> turtles) {
+    Turtle[] grown = Arrays.copyOf(myTurtles, myTurtles.length + turtles.size());
+    for (int i = 0; i < turtles.size(); i++) {
+      grown[myTurtles.length + i] = turtles.get(i);
+      turtles.get(i).setSegments(getDrawing());
+    }
+    myTurtles = grown;
+  }
+
+  /**
+   * Removes every turtle after the given number, and sends commands to every turtle if the
+   * one they were sent to is removed. The first turtle is never removed.
+   *
+   * @param count the number of turtles to keep.
+   * @return the turtles removed.
+   */
+  public List<Turtle> truncate(int count) {
+    count = Math.max(1, count);
+    if (count >= myTurtles.length) {
+      return new ArrayList<>();
+    }
+    List<Turtle> removed = Arrays.asList(Arrays.copyOfRange(myTurtles, count, myTurtles.length));
+    myTurtles = Arrays.copyOf(myTurtles, count);
+    if (told >= count) {
+      told = ALL;
+    }
+    return removed;
+  }
+
+  /**
+   * Returns the number of turtles in the group.
+   *
+   * @return the number of turtles.
+   */
+  public int size() {
+    return myTurtles.length;
+  }
+
+  /**
+   * Returns the turtles of the group, in the order they were created. Can be called from any
+   * thread, and the array returned never changes.
+   *
+   * @return the turtles.
+   */
+  public Turtle[] getTurtles() {
+    return myTurtles;
+  }
+
+  /**
+   * Sends the commands that follow to the given turtle, or to every turtle.
+   *
+   * @param index the index of the turtle, or ALL.
+   * @throws IndexOutOfBoundsException if there is no turtle with that index.
+   */
+  public void tell(int index) {
+    if (index != ALL) {
+      checkIndex(index);
+    }
+    this.told = index;
+  }
+
+  /**
+   * Runs a command on each turtle that commands are sent to.
+   *
+   * @param command the command to run.
+   * @return what the command returned for each turtle, in the order of the turtles.
+   * @throws Exception if the command throws an exception on any turtle.
+   */
+  public Object[] run(TurtleCommand command) throws Exception {
+    return run(told, command);
+  }
+
+  /**
+   * Runs a command on the given turtle, or on every turtle.
+   *
+   * @param index the index of the turtle, or ALL.
+   * @param command the command to run.
+   * @return what the command returned for each turtle, in the order of the turtles.
+   * @throws Exception if the command throws an exception on any turtle.
+   */
+  public Object[] run(int index, TurtleCommand command) throws Exception {
+    Turtle[] turtles = myTurtles;
+    if (index != ALL) {
+      checkIndex(index);
+      return new Object[] {command.run(turtles[index])};
+    }
+    Object[] results = new Object[turtles.length];
+    if (turtles.length < PARALLEL_THRESHOLD) {
+      for (int i = 0; i < turtles.length; i++) {
+        results[i] = command.run(turtles[i]);
+      }
+    } else {
+      runInParallel(turtles, command, results);
+    }
+    return results;
+  }
+
+  //Runs a command on chunks of the turtles in parallel, each chunk drawing into a buffer of
+  //its own, and then adds what each chunk drew to the drawing in order. If the command
+  //fails, everything drawn up to the first failure is still added, and the turtles of the
+  //chunks after it are put back as they were.
+  private void runInParallel(Turtle[] turtles, TurtleCommand command, Object[] results)
+      throws Exception {
+    SegmentBuffer drawing = getDrawing();
+    List<SegmentBuffer> chunkDrawings = new ArrayList<>();
+    List<Callable<Void>> chunks = new ArrayList<>();
+    for (int start = 0; start < turtles.length; start += CHUNK_SIZE) {
+      int from = start;
+      int to = Math.min(turtles.length, start + CHUNK_SIZE);
+      SegmentBuffer chunkDrawing = new SegmentBuffer();
+      chunkDrawing.setLimit(drawing.getLimit());
+      chunkDrawings.add(chunkDrawing);
+      chunks.add(() -> {
+        for (int i = from; i < to; i++) {
+          turtles[i].saveState();
+        }
+        try {
+          for (int i = from; i < to; i++) {
+            turtles[i].setSegments(chunkDrawing);
+            results[i] = command.run(turtles[i]);
+          }
+        } finally {
+          for (int i = from; i < to; i++) {
+            turtles[i].setSegments(drawing);
+          }
+        }
+        return null;
+      });
+    }
+    List<Future<Void>> done = ForkJoinPool.commonPool().invokeAll(chunks);
+    for (int i = 0; i < done.size(); i++) {
+      int next = Math.min(turtles.length, (i + 1) * CHUNK_SIZE);
+      try {
+        drawing.addAll(chunkDrawings.get(i));
+        done.get(i).get();
+      } catch (ExecutionException e) {
+        restoreAfter(turtles, next);
+        if (e.getCause() instanceof Exception) {
+          throw (Exception) e.getCause();
+        }
+        throw e;
+      } catch (RuntimeException e) {
+        restoreAfter(turtles, next);
+        throw e;
+      }
+    }
+  }
+
+  //Puts back every turtle from the given index on as it was before the command ran.
+  private static void restoreAfter(Turtle[] turtles, int from) {
+    for (int i = from; i < turtles.length; i++) {
+      turtles[i].restoreState();
+    }
+  }
+
+  //Returns the drawing every turtle draws into.
+  private SegmentBuffer getDrawing() {
+    return myTurtles[0].getSegments();
+  }
+
+  private void checkIndex(int index) {
+    if (index < 0 || index >= myTurtles.length) {
+      throw new IndexOutOfBoundsException("No turtle " + index);
+    }
+  }
+
+}
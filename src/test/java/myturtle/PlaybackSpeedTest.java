@@ -0,0 +1,40 @@
+package myturtle;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks which speed descriptions PlaybackSpeed accepts.
+ *
+ * @author William Convertino
+ */
+public class PlaybackSpeedTest {
+
+  @Test
+  public void parsesEveryKindOfSpeed() {
+    assertSame(PlaybackSpeed.DEFAULT, PlaybackSpeed.parse("step"));
+    assertTrue(PlaybackSpeed.parse("max").isUnlimited());
+    assertFalse(PlaybackSpeed.parse("100").isUnlimited());
+    assertFalse(PlaybackSpeed.parse("8ms").isUnlimited());
+    assertFalse(PlaybackSpeed.parse("0.5ms").isUnlimited());
+  }
+
+  @Test
+  public void rejectsBudgetsThatAreNotPositive() {
+    assertThrows(IllegalArgumentException.class, () -> PlaybackSpeed.parse("0ms"));
+    assertThrows(IllegalArgumentException.class, () -> PlaybackSpeed.parse("-8ms"));
+    assertThrows(IllegalArgumentException.class, () -> PlaybackSpeed.parse("NaNms"));
+  }
+
+  @Test
+  public void rejectsStepCountsThatAreNotPositive() {
+    assertThrows(IllegalArgumentException.class, () -> PlaybackSpeed.parse("0"));
+    assertThrows(IllegalArgumentException.class, () -> PlaybackSpeed.parse("-3"));
+    assertThrows(IllegalArgumentException.class, () -> PlaybackSpeed.parse("fast"));
+  }
+
+}
@@ -0,0 +1,59 @@
+package myturtle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import myturtle.display.SegmentBuffer;
+import myturtle.programs.LSystemVisualizerProgram;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks that a RenderSession keeps a script within the session's limits.
+ *
+ * @author William Convertino
+ */
+public class RenderSessionTest {
+
+  @TempDir
+  Path folder;
+
+  //Returns a session that runs the given L-system script.
+  private RenderSession session(int maxSegments, long maxNanos, String... lines)
+      throws Exception {
+    Path script = folder.resolve("script.txt");
+    Files.write(script, Arrays.asList(lines));
+    return new RenderSession(new LSystemVisualizerProgram(new ArrayList<>()), script.toString(),
+        maxSegments, maxNanos);
+  }
+
+  @Test
+  public void stopsADrawingThatRunsPastTheTimeLimit() throws Exception {
+    //Only turns, so no segment limit is ever reached, and no cache to skip the work.
+    RenderSession session = session(Integer.MAX_VALUE, 200_000_000L,
+        "start +", "rule + ++", "level 40", "cache 0");
+    IllegalStateException error = assertTimeoutPreemptively(Duration.ofSeconds(10),
+        () -> assertThrows(IllegalStateException.class, session::call));
+    assertEquals("Ran for more than 200ms", error.getMessage());
+  }
+
+  @Test
+  public void stopsADrawingThatDrawsPastTheSegmentLimit() throws Exception {
+    RenderSession session = session(1000, 0, "start F", "rule F F+F", "level 40");
+    assertThrows(IllegalStateException.class, session::call);
+  }
+
+  @Test
+  public void drawsAScriptWithinTheLimits() throws Exception {
+    RenderSession session = session(1000, 10_000_000_000L, "start F", "rule F F+F", "level 3");
+    SegmentBuffer segments = session.call();
+    assertEquals(8, segments.size());
+  }
+
+}
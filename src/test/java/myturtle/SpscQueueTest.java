@@ -0,0 +1,87 @@
+package myturtle;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that SpscQueue hands items over in order and holds exactly its capacity.
+ *
+ * @author William Convertino
+ */
+public class SpscQueueTest {
+
+  //Offers items until the queue is full, returning how many it took.
+  private static int fill(SpscQueue<Integer> queue) {
+    int count = 0;
+    while (queue.offer(count)) {
+      count++;
+    }
+    return count;
+  }
+
+  @Test
+  public void roundsCapacityUpToAPowerOfTwo() {
+    assertEquals(64, fill(new SpscQueue<>(64)));
+    assertEquals(8, fill(new SpscQueue<>(5)));
+    assertEquals(1, fill(new SpscQueue<>(1)));
+    assertEquals(1, fill(new SpscQueue<>(0)));
+  }
+
+  @Test
+  public void refusesItemsOnceFull() {
+    SpscQueue<Integer> queue = new SpscQueue<>(4);
+    assertFalse(queue.isFull());
+    fill(queue);
+    assertTrue(queue.isFull());
+    assertFalse(queue.offer(99));
+    assertEquals(0, queue.poll());
+    assertFalse(queue.isFull());
+    assertTrue(queue.offer(4));
+  }
+
+  @Test
+  public void pollsInOrderAcrossTheEndOfTheRing() {
+    SpscQueue<Integer> queue = new SpscQueue<>(4);
+    assertNull(queue.poll());
+    int offered = 0;
+    int polled = 0;
+    for (int round = 0; round < 100; round++) {
+      for (int i = 0; i < 3; i++) {
+        assertTrue(queue.offer(offered++));
+      }
+      for (int i = 0; i < 3; i++) {
+        assertEquals(polled++, queue.poll());
+      }
+    }
+    assertNull(queue.poll());
+  }
+
+  @Test
+  public void handsItemsOverInOrderBetweenThreads() throws Exception {
+    SpscQueue<Integer> queue = new SpscQueue<>(16);
+    int count = 200_000;
+    Thread producer = new Thread(() -> {
+      for (int i = 0; i < count; i++) {
+        while (!queue.offer(i)) {
+          Thread.yield();
+        }
+      }
+    });
+    producer.start();
+    for (int expected = 0; expected < count; ) {
+      Integer item = queue.poll();
+      if (item == null) {
+        Thread.yield();
+        continue;
+      }
+      assertEquals(expected++, item);
+    }
+    producer.join();
+    assertNull(queue.poll());
+  }
+
+}
@@ -0,0 +1,111 @@
+package myturtle.commands;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import myturtle.programs.program_objects.DrawingTurtle;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks how Command splits a command line into a name and arguments, and which arguments
+ * it reads as numbers.
+ *
+ * @author William Convertino
+ */
+public class CommandTest {
+
+  @Test
+  public void splitsOnAnyWhitespace() {
+    Command command = new Command("  set \t F   fd ");
+    assertEquals("set", command.getCommand());
+    assertEquals(Arrays.asList("F", "fd"), command.getArgs());
+  }
+
+  @Test
+  public void keepsQuotedArgumentsWhole() {
+    Command command = new Command("set F \"pd  fd 10\"");
+    assertEquals(Arrays.asList("F", "pd  fd 10"), command.getArgs());
+    assertFalse(command.isNumber(1));
+
+    Command unclosed = new Command("set F \"pd fd");
+    assertEquals(Arrays.asList("F", "pd fd"), unclosed.getArgs());
+  }
+
+  @Test
+  public void quotedNumbersAreNotNumbers() {
+    Command command = new Command("fd \"10\"");
+    assertEquals(Collections.singletonList("10"), command.getArgs());
+    assertFalse(command.isNumber(0));
+  }
+
+  @Test
+  public void readsBlankLinesAsEmptyCommands() {
+    Command command = new Command("   ");
+    assertEquals("", command.getCommand());
+    assertTrue(command.getArgs().isEmpty());
+    assertNull(new Command((String) null).getCommand());
+  }
+
+  @Test
+  public void lowerCasesNames() {
+    assertEquals("fd", new Command("FD 10").getCommand());
+    assertEquals("unknowncommand", new Command("UnknownCommand").getCommand());
+  }
+
+  @Test
+  public void sharesTheNamesOfKnownCommands() {
+    new DrawingTurtle();
+    assertSame(new Command("fd 1").getCommand(), new Command("Fd 2").getCommand());
+    assertSame(new Command("stamp").getCommand(), new Command("STAMP").getCommand());
+    assertSame(CommandTable.findName("xpd", 1, 3), new Command("pd").getCommand());
+    assertNull(CommandTable.findName("fdx", 0, 3));
+  }
+
+  @Test
+  public void sharesSmallIntegerArguments() {
+    assertSame(new Command("fd 90").getArgs().get(0), new Command("rt 90").getArgs().get(0));
+    assertEquals(-90, new Command("rt -90").getNumber(0));
+  }
+
+  @Test
+  public void readsIntegersWithEitherSign() {
+    assertEquals(5, Command.parseNumber("5"));
+    assertEquals(5, Command.parseNumber("+5"));
+    assertEquals(-5, Command.parseNumber("-5"));
+    assertEquals(1234567890123.0, Command.parseNumber("1234567890123"));
+    assertEquals(3, Command.parseNumber("٣"));
+  }
+
+  @Test
+  public void readsDecimalFractions() {
+    assertEquals(2.5, Command.parseNumber("2.5"));
+    assertEquals(-0.5, Command.parseNumber("-.5"));
+    assertEquals(3, Command.parseNumber("3."));
+    assertEquals(0.25, Command.parseNumber("+0.25"));
+  }
+
+  @Test
+  public void rejectsAnythingElse() {
+    String[] notNumbers = {"", "+", "-", ".", "+.", "1d", "1f", "1e3", "0x10", "NaN",
+        "Infinity", "-Infinity", " 1", "1 ", "1.2.3", "--1", "+-1", "1-", "ten"};
+    for (String arg : notNumbers) {
+      assertTrue(Double.isNaN(Command.parseNumber(arg)), arg);
+    }
+    assertTrue(Double.isNaN(Command.parseNumber(null)));
+    assertTrue(Double.isNaN(Command.parseNumber("9".repeat(400))));
+  }
+
+  @Test
+  public void parsesArgumentsWhenMade() {
+    Command command = new Command("rule +5 F");
+    assertTrue(command.isNumber(0));
+    assertEquals(5, command.getNumber(0));
+    assertFalse(command.isNumber(1));
+  }
+
+}
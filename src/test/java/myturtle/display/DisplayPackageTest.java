@@ -0,0 +1,73 @@
+package myturtle.display;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.Collections;
+import javafx.scene.Node;
+import javafx.scene.shape.Rectangle;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks the order a DisplayPackage keeps its elements in, and the changes it records.
+ *
+ * @author William Convertino
+ */
+public class DisplayPackageTest {
+
+  @Test
+  public void keepsElementsAddedToEitherEndInOrder() {
+    DisplayPackage elements = new DisplayPackage();
+    Node a = new Rectangle();
+    Node b = new Rectangle();
+    Node c = new Rectangle();
+    Node d = new Rectangle();
+    elements.add(b);
+    elements.addFirst(a);
+    elements.add(c);
+    elements.addFirst(d);
+    elements.add(b);
+    assertEquals(Arrays.asList(d, a, b, c), elements.getElementList());
+    elements.remove(a);
+    assertEquals(Arrays.asList(d, b, c), elements.getElementList());
+  }
+
+  @Test
+  public void recordsOnlyTheNetChanges() {
+    DisplayPackage elements = new DisplayPackage();
+    Node kept = new Rectangle();
+    Node gone = new Rectangle();
+    elements.add(kept);
+    elements.add(gone);
+    elements.clearChanges();
+    assertFalse(elements.hasChanges());
+
+    Node brief = new Rectangle();
+    elements.add(brief);
+    elements.remove(brief);
+    elements.remove(gone);
+    elements.remove(gone);
+    assertTrue(elements.getAddedElements().isEmpty());
+    assertEquals(Collections.singletonList(gone),
+        Arrays.asList(elements.getRemovedElements().toArray()));
+    elements.add(gone);
+    assertFalse(elements.hasChanges());
+  }
+
+  @Test
+  public void removesFromALargePackageQuickly() {
+    DisplayPackage elements = new DisplayPackage();
+    Node[] stamps = new Node[100_000];
+    for (int i = 0; i < stamps.length; i++) {
+      stamps[i] = new Rectangle();
+      elements.add(stamps[i]);
+    }
+    for (Node stamp : stamps) {
+      elements.remove(stamp);
+    }
+    assertTrue(elements.getElementList().isEmpty());
+  }
+
+}
@@ -0,0 +1,170 @@
+package myturtle.display;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks how a SegmentBuffer stores segments, merges those that continue the last one,
+ * drops its oldest segments, and tells readers what changed.
+ *
+ * @author William Convertino
+ */
+public class SegmentBufferTest {
+
+  //More segments than fit in one block of the buffer.
+  private static final int MANY_SEGMENTS = 40_000;
+
+  //Adds a zigzag of segments, none of which continues the one before it in a straight line.
+  private static void addZigzag(SegmentBuffer buffer, int count) {
+    for (int i = 0; i < count; i++) {
+      buffer.add(i, i % 2, i + 1, (i + 1) % 2, SegmentBuffer.DEFAULT_STYLE);
+    }
+  }
+
+  private static void assertSegment(SegmentBuffer buffer, int i, double x1, double y1,
+      double x2, double y2) {
+    assertEquals((float) x1, buffer.getX1(i), "x1 of segment " + i);
+    assertEquals((float) y1, buffer.getY1(i), "y1 of segment " + i);
+    assertEquals((float) x2, buffer.getX2(i), "x2 of segment " + i);
+    assertEquals((float) y2, buffer.getY2(i), "y2 of segment " + i);
+  }
+
+  @Test
+  public void mergesSegmentsThatContinueTheLastInAStraightLine() {
+    SegmentBuffer buffer = new SegmentBuffer();
+    buffer.add(0, 0, 10, 0, SegmentBuffer.DEFAULT_STYLE);
+    buffer.add(10, 0, 25, 0, SegmentBuffer.DEFAULT_STYLE);
+    buffer.add(25, 0, 25.5, 0, SegmentBuffer.DEFAULT_STYLE);
+    assertEquals(1, buffer.size());
+    assertSegment(buffer, 0, 0, 0, 25.5, 0);
+
+    buffer.add(25.5, 0, 25.5 + 3, 4, SegmentBuffer.DEFAULT_STYLE);
+    buffer.add(28.5, 4, 28.5 + 30, 4 + 40, SegmentBuffer.DEFAULT_STYLE);
+    assertEquals(2, buffer.size());
+    assertSegment(buffer, 1, 25.5, 0, 58.5, 44);
+  }
+
+  @Test
+  public void keepsTurnsReversalsGapsAndStyleChangesApart() {
+    SegmentBuffer buffer = new SegmentBuffer();
+    int red = buffer.addStyle(0xFFFF0000, 2);
+    buffer.add(0, 0, 10, 0, SegmentBuffer.DEFAULT_STYLE);
+    buffer.add(10, 0, 10, 10, SegmentBuffer.DEFAULT_STYLE);
+    buffer.add(10, 10, 10, 5, SegmentBuffer.DEFAULT_STYLE);
+    buffer.add(10, 4, 10, 0, SegmentBuffer.DEFAULT_STYLE);
+    buffer.add(10, 0, 10, -5, red);
+    assertEquals(5, buffer.size());
+    assertFalse(buffer.isConnected(0));
+    assertTrue(buffer.isConnected(1));
+    assertTrue(buffer.isConnected(2));
+    assertFalse(buffer.isConnected(3));
+    assertFalse(buffer.isConnected(4));
+    assertEquals(red, buffer.getStyle(4));
+    assertEquals(0xFFFF0000, buffer.getStyleColor(red));
+    assertEquals(2, buffer.getStyleWidth(red));
+    assertEquals(red, buffer.addStyle(0xFFFF0000, 2));
+  }
+
+  @Test
+  public void countsEveryChangeAsANewVersion() {
+    SegmentBuffer buffer = new SegmentBuffer();
+    int version = buffer.getVersion();
+    buffer.add(0, 0, 10, 0, SegmentBuffer.DEFAULT_STYLE);
+    assertNotEquals(version, buffer.getVersion());
+    version = buffer.getVersion();
+    buffer.add(10, 0, 20, 0, SegmentBuffer.DEFAULT_STYLE);
+    assertEquals(1, buffer.size());
+    assertNotEquals(version, buffer.getVersion(), "extending the last segment is a change");
+  }
+
+  @Test
+  public void keepsSegmentsAcrossBlocks() {
+    SegmentBuffer buffer = new SegmentBuffer();
+    addZigzag(buffer, MANY_SEGMENTS);
+    assertEquals(MANY_SEGMENTS, buffer.size());
+    for (int i = 0; i < MANY_SEGMENTS; i++) {
+      assertSegment(buffer, i, i, i % 2, i + 1, (i + 1) % 2);
+    }
+  }
+
+  @Test
+  public void growsAgainAfterBeingTrimmed() {
+    SegmentBuffer buffer = new SegmentBuffer();
+    addZigzag(buffer, 100);
+    buffer.trimToSize();
+    addZigzag(buffer, 100);
+    assertEquals(200, buffer.size());
+    assertSegment(buffer, 99, 99, 1, 100, 0);
+    assertSegment(buffer, 100, 0, 0, 1, 1);
+  }
+
+  @Test
+  public void discardsTheOldestSegmentsAsANewGeneration() {
+    SegmentBuffer buffer = new SegmentBuffer();
+    addZigzag(buffer, MANY_SEGMENTS);
+    int generation = buffer.getGeneration();
+    int version = buffer.getVersion();
+    buffer.discardOldest(MANY_SEGMENTS - 5);
+    assertEquals(5, buffer.size());
+    for (int i = 0; i < 5; i++) {
+      int old = MANY_SEGMENTS - 5 + i;
+      assertSegment(buffer, i, old, old % 2, old + 1, (old + 1) % 2);
+    }
+    assertNotEquals(generation, buffer.getGeneration());
+    assertNotEquals(version, buffer.getVersion());
+
+    buffer.discardOldest(10);
+    assertEquals(0, buffer.size());
+  }
+
+  @Test
+  public void clearingKeepsStylesAndStartsANewGeneration() {
+    SegmentBuffer buffer = new SegmentBuffer();
+    int blue = buffer.addStyle(0xFF0000FF, 3);
+    addZigzag(buffer, 10);
+    int generation = buffer.getGeneration();
+    buffer.clear();
+    assertEquals(0, buffer.size());
+    assertNotEquals(generation, buffer.getGeneration());
+    assertEquals(blue, buffer.addStyle(0xFF0000FF, 3));
+  }
+
+  @Test
+  public void refusesSegmentsPastTheLimitButStillExtendsTheLast() {
+    SegmentBuffer buffer = new SegmentBuffer();
+    buffer.setLimit(2);
+    buffer.add(0, 0, 10, 0, SegmentBuffer.DEFAULT_STYLE);
+    buffer.add(10, 0, 10, 10, SegmentBuffer.DEFAULT_STYLE);
+    buffer.add(10, 10, 10, 20, SegmentBuffer.DEFAULT_STYLE);
+    assertEquals(2, buffer.size());
+    IllegalStateException error = assertThrows(IllegalStateException.class,
+        () -> buffer.add(10, 20, 0, 20, SegmentBuffer.DEFAULT_STYLE));
+    assertEquals("More than 2 segments drawn", error.getMessage());
+  }
+
+  @Test
+  public void copiesWithoutMergingButJoinsTransformedSegments() {
+    SegmentBuffer line = new SegmentBuffer();
+    line.add(0, 0, 10, 0, SegmentBuffer.DEFAULT_STYLE);
+
+    SegmentBuffer copy = new SegmentBuffer();
+    copy.add(-10, 0, 0, 0, SegmentBuffer.DEFAULT_STYLE);
+    copy.copyFrom(line, 0);
+    assertEquals(2, copy.size());
+
+    SegmentBuffer joined = new SegmentBuffer();
+    joined.add(0, 0, 0, 10, SegmentBuffer.DEFAULT_STYLE);
+    joined.addTransformed(line, 0, 1, 0, 10.0005);
+    joined.addTransformed(line, 1, 0, 0, 20.0005);
+    assertEquals(2, joined.size());
+    assertSegment(joined, 0, 0, 0, 0, 20.0005);
+    assertSegment(joined, 1, 0, 20.0005, 10, 20.0005);
+    assertTrue(joined.isConnected(1));
+  }
+
+}
@@ -0,0 +1,79 @@
+package myturtle.programs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import myturtle.programs.program_objects.LSystemExpansion;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that the lazy LSystemExpansion yields exactly the pattern that rewriting the
+ * whole string once per level (LSystemVisualizerProgram.updatePattern) produces.
+ *
+ * @author William Convertino
+ */
+public class LSystemExpansionTest {
+
+  //Returns the pattern built by rewriting the start pattern the given number of times.
+  private static String rewrite(String start, Map<String, String> rules, int depth) {
+    LSystemVisualizerProgram program = new LSystemVisualizerProgram(new ArrayList<>());
+    program.start(start);
+    for (Map.Entry<String, String> rule : rules.entrySet()) {
+      program.rule(rule.getKey(), rule.getValue());
+    }
+    for (int i = 0; i < depth; i++) {
+      program.updatePattern();
+    }
+    return program.getPattern();
+  }
+
+  //Returns the pattern yielded by a lazy expansion.
+  private static String expand(String start, Map<String, String> rules, int depth) {
+    StringBuilder pattern = new StringBuilder();
+    new LSystemExpansion(start, rules, depth).forEachRemaining((int s) -> pattern.append((char) s));
+    return pattern.toString();
+  }
+
+  private static void assertSameExpansion(String start, Map<String, String> rules, int maxDepth) {
+    for (int depth = 0; depth <= maxDepth; depth++) {
+      assertEquals(rewrite(start, rules, depth), expand(start, rules, depth), "depth " + depth);
+    }
+  }
+
+  @Test
+  public void matchesRewriteForKochCurve() {
+    Map<String, String> rules = new HashMap<>();
+    rules.put("F", "F-F++F-F");
+    assertSameExpansion("F++F++F", rules, 5);
+  }
+
+  @Test
+  public void matchesRewriteForSeveralRules() {
+    Map<String, String> rules = new HashMap<>();
+    rules.put("X", "F+[[X]-X]-F[-FX]+X");
+    rules.put("F", "FF");
+    assertSameExpansion("X", rules, 5);
+  }
+
+  @Test
+  public void matchesRewriteForEmptyAndNonAsciiRules() {
+    Map<String, String> rules = new HashMap<>();
+    rules.put("A", "");
+    rules.put("é", "AéB");
+    rules.put("B", "é+");
+    assertSameExpansion("ABé", rules, 6);
+  }
+
+  @Test
+  public void finishedExpansionThrows() {
+    LSystemExpansion expansion = new LSystemExpansion("", new HashMap<>(), 3);
+    assertFalse(expansion.hasNext());
+    assertThrows(NoSuchElementException.class, expansion::nextInt);
+  }
+
+}
@@ -0,0 +1,93 @@
+package myturtle.programs;
+
+import static myturtle.programs.program_objects.LSystemTestSupport.assertSameDrawing;
+import static myturtle.programs.program_objects.LSystemTestSupport.assertSameState;
+import static myturtle.programs.program_objects.LSystemTestSupport.drawSequentially;
+import static myturtle.programs.program_objects.LSystemTestSupport.newTurtle;
+import static myturtle.programs.program_objects.LSystemTestSupport.rules;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReference;
+import myturtle.display.SegmentBuffer;
+import myturtle.programs.program_objects.LSystemTurtle;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Checks how an LSystemVisualizerProgram draws its patterns.
+ *
+ * @author William Convertino
+ */
+public class LSystemVisualizerProgramTest {
+
+  @TempDir
+  Path folder;
+
+  //Returns a program with the given script loaded.
+  private LSystemVisualizerProgram load(String... lines) throws Exception {
+    Path script = folder.resolve("script.txt");
+    Files.write(script, Arrays.asList(lines));
+    LSystemVisualizerProgram program = new LSystemVisualizerProgram(new ArrayList<>());
+    program.loadFileAsInstructions(script.toString());
+    return program;
+  }
+
+  @Test
+  public void showsExplicitDistancesInPixelsAtAnyLength() throws Exception {
+    LSystemVisualizerProgram program = load("setlength 60", "set Y \"pd fd 10\"",
+        "start FY", "level 0");
+    while (!program.isFinished()) {
+      program.update();
+    }
+    SegmentBuffer segments = program.getTurtle().getSegments();
+    assertEquals(1, segments.size());
+    double shown = (segments.getY1(0) - segments.getY2(0)) * program.getDrawingScale();
+    assertEquals(60 + 10, shown, 1e-4);
+  }
+
+  @Test
+  public void drawsPatternsAtAnyAngleExactlyAsTheTurtleWould() throws Exception {
+    //The cache is on, but its moved copies would round differently at 25 degrees.
+    LSystemVisualizerProgram program = load("setangle 25", "start F",
+        "rule F FF+[+F-F-F]-[-F+F+F]", "level 5");
+    while (!program.isFinished()) {
+      program.update();
+    }
+    LSystemTurtle expected = newTurtle("25");
+    drawSequentially(expected, LSystemVisualizerProgram.BUIT_IN_LIBRARY, "F",
+        rules("F", "FF+[+F-F-F]-[-F+F+F]"), 5);
+    assertSameDrawing(expected.getSegments(), program.getTurtle().getSegments());
+    assertSameState(expected, program.getTurtle());
+  }
+
+  @Test
+  public void interruptingTheProgramThreadStopsADrawing() throws Exception {
+    //Only turns, so no segment limit is ever reached, and no cache to skip the work.
+    LSystemVisualizerProgram program = load("start +", "rule + ++", "level 40", "cache 0");
+    AtomicReference<Exception> error = new AtomicReference<>();
+    Thread runner = new Thread(() -> {
+      try {
+        while (!program.isFinished()) {
+          program.update();
+        }
+      } catch (Exception e) {
+        error.set(e);
+      }
+    });
+    runner.start();
+    Thread.sleep(200);
+    assertTrue(runner.isAlive(), "the drawing should still be running");
+    runner.interrupt();
+    runner.join(5000);
+    assertFalse(runner.isAlive(), "the drawing did not stop");
+    assertEquals(IllegalStateException.class, error.get().getClass());
+    assertTrue(program.isFinished());
+  }
+
+}
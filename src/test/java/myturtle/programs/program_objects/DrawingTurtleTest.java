@@ -0,0 +1,37 @@
+package myturtle.programs.program_objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import javafx.scene.shape.Polygon;
+import myturtle.commands.Command;
+import myturtle.display.DisplayRenderer;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks what a DrawingTurtle's stamps leave in the drawing.
+ *
+ * @author William Convertino
+ */
+public class DrawingTurtleTest {
+
+  @Test
+  public void stampsWhereTheTurtleIs() throws Exception {
+    DrawingTurtle turtle = new DrawingTurtle();
+    turtle.executeCommand(new Command("rt 90"));
+    turtle.executeCommand(new Command("fd 50"));
+    Polygon stamp = (Polygon) turtle.executeCommand(new Command("stamp"));
+    assertEquals(turtle.getX(), stamp.getLayoutX());
+    assertEquals(turtle.getY(), stamp.getLayoutY());
+  }
+
+  @Test
+  public void stampsScaleWithTheDrawingButTurtlesDoNot() throws Exception {
+    DrawingTurtle turtle = new DrawingTurtle();
+    Polygon stamp = (Polygon) turtle.executeCommand(new Command("stamp"));
+    assertTrue(DisplayRenderer.isScaledWithDrawing(stamp));
+    assertFalse(DisplayRenderer.isScaledWithDrawing(turtle.getDisplayShape()));
+  }
+
+}
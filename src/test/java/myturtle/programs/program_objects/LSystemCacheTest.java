@@ -0,0 +1,159 @@
+package myturtle.programs.program_objects;
+
+import static myturtle.programs.program_objects.LSystemTestSupport.assertSameDrawing;
+import static myturtle.programs.program_objects.LSystemTestSupport.assertSameState;
+import static myturtle.programs.program_objects.LSystemTestSupport.drawSequentially;
+import static myturtle.programs.program_objects.LSystemTestSupport.newTurtle;
+import static myturtle.programs.program_objects.LSystemTestSupport.rules;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import myturtle.commands.Command;
+import myturtle.display.SegmentBuffer;
+import myturtle.programs.LSystemVisualizerProgram;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks how an LSystemCache keeps drawn expansions, that it is cleared when the symbols,
+ * rules, or turn angle they were drawn with change, and that drawing a pattern from it gives
+ * exactly what drawing the pattern with the turtle does, or is refused where it would not.
+ *
+ * @author William Convertino
+ */
+public class LSystemCacheTest {
+
+  //The rules of the quadratic Koch island, which only turns by quarter turns.
+  private static final Map<String, String> KOCH_ISLAND = rules("F", "F+F-F-FF+F+F-F");
+
+  private static SegmentBuffer expansion(int segments) {
+    SegmentBuffer expansion = new SegmentBuffer();
+    for (int i = 0; i < segments; i++) {
+      expansion.add(i, 0, i, 1, SegmentBuffer.DEFAULT_STYLE);
+    }
+    return expansion;
+  }
+
+  //Draws the pattern from the cache with a new renderer, and with the turtle itself, and
+  //checks that both give exactly the same drawing and leave the turtle in the same state.
+  private static void assertCachedLikeTurtle(Map<String, List<Command>> library, String start,
+      Map<String, String> rules, int depth, String angle, LSystemCache cache) throws Exception {
+    LSystemTurtle expected = newTurtle(angle);
+    drawSequentially(expected, library, start, rules, depth);
+    LSystemTurtle actual = newTurtle(angle);
+    ParallelLSystemRenderer renderer = new ParallelLSystemRenderer(library, rules, actual);
+    assertTrue(renderer.renderCached(start, depth, cache, Deadline.NONE));
+    assertSameDrawing(expected.getSegments(), actual.getSegments());
+    assertSameState(expected, actual);
+  }
+
+  @Test
+  public void dropsTheLeastRecentlyUsedExpansions() {
+    LSystemCache cache = new LSystemCache();
+    cache.setBudget(2 * (128 + 10 * 18));
+    cache.put('A', 1, true, expansion(10));
+    cache.put('B', 1, true, expansion(10));
+    assertNotNull(cache.get('A', 1, true));
+    cache.put('C', 1, true, expansion(10));
+    assertNotNull(cache.get('A', 1, true));
+    assertNull(cache.get('B', 1, true));
+    assertNotNull(cache.get('C', 1, true));
+    assertNull(cache.get('C', 1, false));
+    assertNull(cache.get('C', 2, true));
+  }
+
+  @Test
+  public void keepsBudgetsWithinTheLimit() {
+    LSystemCache cache = new LSystemCache();
+    cache.setLimit(1 << 20);
+    assertEquals(1 << 20, cache.getBudget());
+    cache.setBudget(1 << 30);
+    assertEquals(1 << 20, cache.getBudget());
+    cache.setBudget(0);
+    assertFalse(cache.fits(0));
+  }
+
+  @Test
+  public void clearsWhenTheSignatureChanges() {
+    LSystemCache cache = new LSystemCache();
+    cache.validate("F=F+F");
+    cache.put('F', 1, true, expansion(1));
+    cache.validate("F=F+F");
+    assertNotNull(cache.get('F', 1, true));
+    cache.validate("F=F-F");
+    assertNull(cache.get('F', 1, true));
+  }
+
+  @Test
+  public void clearsWhenARuleChanges() throws Exception {
+    Map<String, List<Command>> library = LSystemVisualizerProgram.BUIT_IN_LIBRARY;
+    LSystemCache cache = new LSystemCache();
+    assertCachedLikeTurtle(library, "F", rules("F", "F+F-F"), 4, "90", cache);
+    assertCachedLikeTurtle(library, "F", rules("F", "F-F+F"), 4, "90", cache);
+  }
+
+  @Test
+  public void clearsWhenASymbolChanges() throws Exception {
+    Map<String, String> rules = rules("F", "F+F-F");
+    LSystemCache cache = new LSystemCache();
+    assertCachedLikeTurtle(LSystemVisualizerProgram.BUIT_IN_LIBRARY, "F", rules, 4, "90", cache);
+    Map<String, List<Command>> changed = new HashMap<>(LSystemVisualizerProgram.BUIT_IN_LIBRARY);
+    List<Command> longStep = new ArrayList<>();
+    longStep.add(new Command("fd 20"));
+    changed.put("F", longStep);
+    assertCachedLikeTurtle(changed, "F", rules, 4, "90", cache);
+  }
+
+  @Test
+  public void clearsWhenTheAngleChanges() throws Exception {
+    Map<String, List<Command>> library = LSystemVisualizerProgram.BUIT_IN_LIBRARY;
+    Map<String, String> rules = rules("F", "F+F-F");
+    LSystemCache cache = new LSystemCache();
+    assertCachedLikeTurtle(library, "F", rules, 4, "90", cache);
+    assertCachedLikeTurtle(library, "F", rules, 4, "180", cache);
+  }
+
+  @Test
+  public void matchesTurtleForKochIsland() throws Exception {
+    assertCachedLikeTurtle(LSystemVisualizerProgram.BUIT_IN_LIBRARY, "F+F+F+F", KOCH_ISLAND, 4,
+        "90", new LSystemCache());
+  }
+
+  @Test
+  public void matchesTurtleWithPenCommands() throws Exception {
+    assertCachedLikeTurtle(LSystemVisualizerProgram.BUIT_IN_LIBRARY, "F+F+F+F",
+        rules("F", "F+G-F", "G", "GG"), 6, "90", new LSystemCache());
+  }
+
+  @Test
+  public void reusesExpansionsForADeeperPattern() throws Exception {
+    LSystemCache cache = new LSystemCache();
+    assertCachedLikeTurtle(LSystemVisualizerProgram.BUIT_IN_LIBRARY, "F", KOCH_ISLAND, 3, "90",
+        cache);
+    assertNotNull(cache.get('F', 3, true));
+    assertCachedLikeTurtle(LSystemVisualizerProgram.BUIT_IN_LIBRARY, "F", KOCH_ISLAND, 4, "90",
+        cache);
+  }
+
+  @Test
+  public void refusesPatternsItCanNotPlaceExactly() {
+    Map<String, List<Command>> library = LSystemVisualizerProgram.BUIT_IN_LIBRARY;
+    LSystemCache cache = new LSystemCache();
+    LSystemTurtle plant = newTurtle("25");
+    assertFalse(new ParallelLSystemRenderer(library, rules("F", "FF+[+F-F-F]-[-F+F+F]"), plant)
+        .renderCached("F", 5, cache, Deadline.NONE));
+    LSystemTurtle farReaching = newTurtle("90");
+    assertFalse(new ParallelLSystemRenderer(library, rules("F", "FF"), farReaching)
+        .renderCached("F", 20, cache, Deadline.NONE));
+    assertEquals(0, plant.getSegments().size());
+    assertEquals(0, farReaching.getSegments().size());
+    assertNull(cache.get('F', 1, true));
+  }
+
+}
@@ -0,0 +1,111 @@
+package myturtle.programs.program_objects;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import myturtle.commands.Command;
+import myturtle.display.SegmentBuffer;
+
+/**
+ * Makes the turtles, rules, and reference drawings that the tests of L-system drawing
+ * compare against.
+ *
+ * @author William Convertino
+ */
+public final class LSystemTestSupport {
+
+  private LSystemTestSupport() {
+  }
+
+  /**
+   * Returns a rule library from pairs of symbols and rules.
+   *
+   * @param symbolsAndRules each symbol followed by its rule.
+   * @return the rule library.
+   */
+  public static Map<String, String> rules(String... symbolsAndRules) {
+    Map<String, String> rules = new HashMap<>();
+    for (int i = 0; i < symbolsAndRules.length; i += 2) {
+      rules.put(symbolsAndRules[i], symbolsAndRules[i + 1]);
+    }
+    return rules;
+  }
+
+  /**
+   * Returns a new turtle that turns by the given angle.
+   *
+   * @param angle the turn angle.
+   * @return the turtle.
+   */
+  public static LSystemTurtle newTurtle(String angle) {
+    return newTurtle(angle, 1);
+  }
+
+  /**
+   * Returns a new turtle that turns by the given angle and moves the given distance per pixel.
+   *
+   * @param angle the turn angle.
+   * @param pixelLength the distance moved for each pixel given to fd or bk.
+   * @return the turtle.
+   */
+  public static LSystemTurtle newTurtle(String angle, double pixelLength) {
+    LSystemTurtle turtle = new LSystemTurtle();
+    turtle.setangle(angle);
+    turtle.setPixelLength(pixelLength);
+    return turtle;
+  }
+
+  /**
+   * Draws the expanded pattern with the turtle itself, one symbol at a time, as
+   * LSystemVisualizerProgram does when it neither renders nor caches the pattern.
+   *
+   * @param turtle the turtle to draw with.
+   * @param library the commands of each symbol.
+   * @param start the initial pattern.
+   * @param rules the rule of each symbol.
+   * @param depth the depth of the expansion.
+   * @throws Exception if a command fails.
+   */
+  public static void drawSequentially(LSystemTurtle turtle, Map<String, List<Command>> library,
+      String start, Map<String, String> rules, int depth) throws Exception {
+    SymbolTable<List<Command>> symbols = new SymbolTable<>(library);
+    LSystemExpansion pattern = new LSystemExpansion(start, rules, depth);
+    while (pattern.hasNext()) {
+      List<Command> commands = symbols.get(pattern.nextInt());
+      for (int i = 0; commands != null && i < commands.size(); i++) {
+        turtle.executeCommand(commands.get(i));
+      }
+    }
+  }
+
+  /**
+   * Checks that two drawings hold exactly the same segments.
+   *
+   * @param want the expected drawing.
+   * @param got the actual drawing.
+   */
+  public static void assertSameDrawing(SegmentBuffer want, SegmentBuffer got) {
+    assertEquals(want.size(), got.size(), "segment count");
+    for (int i = 0; i < want.size(); i++) {
+      assertEquals(want.getX1(i), got.getX1(i), "x1 of segment " + i);
+      assertEquals(want.getY1(i), got.getY1(i), "y1 of segment " + i);
+      assertEquals(want.getX2(i), got.getX2(i), "x2 of segment " + i);
+      assertEquals(want.getY2(i), got.getY2(i), "y2 of segment " + i);
+    }
+  }
+
+  /**
+   * Checks that two turtles are in exactly the same place, facing exactly the same way.
+   *
+   * @param want the turtle in the expected state.
+   * @param got the turtle in the actual state.
+   */
+  public static void assertSameState(Turtle want, Turtle got) {
+    assertEquals(want.getX(), got.getX(), "x");
+    assertEquals(want.getY(), got.getY(), "y");
+    assertEquals(want.getAngle(), got.getAngle(), "angle");
+  }
+
+}
@@ -0,0 +1,102 @@
+package myturtle.programs.program_objects;
+
+import static myturtle.programs.program_objects.LSystemTestSupport.assertSameDrawing;
+import static myturtle.programs.program_objects.LSystemTestSupport.assertSameState;
+import static myturtle.programs.program_objects.LSystemTestSupport.drawSequentially;
+import static myturtle.programs.program_objects.LSystemTestSupport.newTurtle;
+import static myturtle.programs.program_objects.LSystemTestSupport.rules;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import myturtle.commands.Command;
+import myturtle.programs.LSystemVisualizerProgram;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that rendering a pattern in parallel gives exactly the segments, and leaves the
+ * turtle in exactly the state, that drawing it one symbol at a time with the turtle does.
+ *
+ * @author William Convertino
+ */
+public class ParallelLSystemRendererTest {
+
+  private static void assertRendersLikeTurtle(Map<String, List<Command>> library, String start,
+      Map<String, String> rules, int depth, String angle) throws Exception {
+    assertRendersLikeTurtle(library, start, rules, depth, angle, 1);
+  }
+
+  private static void assertRendersLikeTurtle(Map<String, List<Command>> library, String start,
+      Map<String, String> rules, int depth, String angle, double pixelLength) throws Exception {
+    LSystemTurtle expected = newTurtle(angle, pixelLength);
+    drawSequentially(expected, library, start, rules, depth);
+    LSystemTurtle actual = newTurtle(angle, pixelLength);
+    ParallelLSystemRenderer renderer = new ParallelLSystemRenderer(library, rules, actual);
+    assertTrue(renderer.canRender(start));
+    assertTrue(renderer.getPatternLength(start, depth) > 4 * (1 << 13), "too short to split");
+    renderer.render(start, depth, Deadline.NONE);
+    assertSameDrawing(expected.getSegments(), actual.getSegments());
+    assertSameState(expected, actual);
+  }
+
+  @Test
+  public void matchesTurtleForKochSnowflake() throws Exception {
+    assertRendersLikeTurtle(LSystemVisualizerProgram.BUIT_IN_LIBRARY, "F++F++F",
+        rules("F", "F-F++F-F"), 7, "60");
+  }
+
+  @Test
+  public void matchesTurtleForFarReachingPlant() throws Exception {
+    //The drawing reaches far from home, where float rounding decides which moves merge.
+    assertRendersLikeTurtle(LSystemVisualizerProgram.BUIT_IN_LIBRARY, "F",
+        rules("F", "FF+[+F-F-F]-[-F+F+F]"), 5, "25");
+  }
+
+  @Test
+  public void matchesTurtleForAnglesOffTheTable() throws Exception {
+    assertRendersLikeTurtle(LSystemVisualizerProgram.BUIT_IN_LIBRARY, "F+F+F+F",
+        rules("F", "F+G-FF+F+FF+FG+FF-G+FF-F-FF-FG-FFF", "G", "GGGGGG"), 3, "87.5");
+  }
+
+  @Test
+  public void matchesTurtleWhenChunksContinueOneLine() throws Exception {
+    //Every move merges into one segment, across every chunk.
+    assertRendersLikeTurtle(LSystemVisualizerProgram.BUIT_IN_LIBRARY, "F+F",
+        rules("F", "FF"), 15, "90");
+  }
+
+  @Test
+  public void matchesTurtleStartingChunksFromSummaries() throws Exception {
+    //Quarter turns and whole moves, so the chunks start from states worked out from the
+    //summaries rather than traced, including inside the expansions of single symbols.
+    assertRendersLikeTurtle(LSystemVisualizerProgram.BUIT_IN_LIBRARY, "F+F+F+F",
+        rules("F", "F+G-F-FF+F+F-F", "G", "GG"), 5, "90");
+  }
+
+  //Returns the built-in symbols with a zigzag Z, which moves explicit distances.
+  private static Map<String, List<Command>> zigzagLibrary() {
+    Map<String, List<Command>> library = new HashMap<>(LSystemVisualizerProgram.BUIT_IN_LIBRARY);
+    List<Command> zigzag = new ArrayList<>();
+    zigzag.add(new Command("fd 7"));
+    zigzag.add(new Command("rt 45"));
+    zigzag.add(new Command("bk 3.5"));
+    zigzag.add(new Command("lt 45"));
+    library.put("Z", zigzag);
+    return library;
+  }
+
+  @Test
+  public void matchesTurtleWithPenAndArgumentCommands() throws Exception {
+    assertRendersLikeTurtle(zigzagLibrary(), "ZBA",
+        rules("Z", "Z-ZA+BZ", "A", "AG", "B", "FZ"), 8, "30");
+  }
+
+  @Test
+  public void matchesTurtleMovingExplicitDistancesAtAnotherLength() throws Exception {
+    assertRendersLikeTurtle(zigzagLibrary(), "ZBA",
+        rules("Z", "Z-ZA+BZ", "A", "AG", "B", "FZ"), 8, "30", 0.3);
+  }
+
+}
@@ -0,0 +1,83 @@
+package myturtle.programs.program_objects;
+
+import static myturtle.programs.program_objects.LSystemTestSupport.assertSameDrawing;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Checks that a command sent to enough turtles to run in parallel leaves the turtles and
+ * their drawing just as running it on them one after another would, even when it fails.
+ *
+ * @author William Convertino
+ */
+public class TurtleGroupTest {
+
+  //Enough turtles for commands to run on them in parallel.
+  private static final int TURTLES = 2 * TurtleGroup.PARALLEL_THRESHOLD;
+
+  //The turtle the failing command fails on.
+  private static final int FAILING_TURTLE = 1300;
+
+  //Makes a group of turtles, each facing a direction of its own.
+  private static TurtleGroup newGroup() {
+    DrawingTurtle first = new DrawingTurtle();
+    TurtleGroup group = new TurtleGroup(first);
+    List<Turtle> others = new ArrayList<>();
+    for (int i = 1; i < TURTLES; i++) {
+      DrawingTurtle turtle = new DrawingTurtle();
+      turtle.setAngle(i * 0.1);
+      others.add(turtle);
+    }
+    group.addAll(others);
+    return group;
+  }
+
+  //Moves a turtle forward, failing once the given turtle has moved.
+  private static TurtleGroup.TurtleCommand forwardFailingOn(Turtle failing) {
+    return turtle -> {
+      ((DrawingTurtle) turtle).forward(10);
+      if (turtle == failing) {
+        throw new IllegalStateException("Failed");
+      }
+      return null;
+    };
+  }
+
+  @Test
+  public void drawsInTheOrderOfTheTurtles() throws Exception {
+    TurtleGroup parallel = newGroup();
+    TurtleGroup sequential = newGroup();
+    parallel.run(TurtleGroup.ALL, forwardFailingOn(null));
+    for (int i = 0; i < TURTLES; i++) {
+      sequential.run(i, forwardFailingOn(null));
+    }
+    assertSameDrawing(sequential.getTurtles()[0].getSegments(),
+        parallel.getTurtles()[0].getSegments());
+  }
+
+  @Test
+  public void leavesTheTurtlesAfterAFailureAsTheyWere() throws Exception {
+    TurtleGroup parallel = newGroup();
+    TurtleGroup sequential = newGroup();
+    Turtle[] parallelTurtles = parallel.getTurtles();
+    Turtle[] sequentialTurtles = sequential.getTurtles();
+    assertThrows(IllegalStateException.class,
+        () -> parallel.run(TurtleGroup.ALL, forwardFailingOn(parallelTurtles[FAILING_TURTLE])));
+    for (int i = 0; i <= FAILING_TURTLE; i++) {
+      sequential.run(i, forwardFailingOn(null));
+    }
+
+    for (int i = 0; i < TURTLES; i++) {
+      assertEquals(sequentialTurtles[i].getX(), parallelTurtles[i].getX(), "x of turtle " + i);
+      assertEquals(sequentialTurtles[i].getY(), parallelTurtles[i].getY(), "y of turtle " + i);
+      assertEquals(sequentialTurtles[i].getAngle(), parallelTurtles[i].getAngle(),
+          "angle of turtle " + i);
+    }
+    assertSameDrawing(sequentialTurtles[0].getSegments(), parallelTurtles[0].getSegments());
+  }
+
+}